@@ -18,6 +18,7 @@ public class Constants {
     public static String ALERT_LEVEL_CHARACTERISTIC = "00002A06-0000-1000-8000-00805F9B34FB";
     public static String CLIENT_PROXIMITY_CHARACTERISTIC = "3E099911-293F-11E4-93BD-AFD0FE6D1DFD";
     public static String TEMPERATURE_MEASUREMENT_CHARACTERISTIC = "00002A1C-0000-1000-8000-00805F9B34FB";
+    public static String TX_POWER_LEVEL_CHARACTERISTIC = "00002A07-0000-1000-8000-00805F9B34FB";
     public static String CLIENT_CHARACTERISTIC_CONFIG = "00002902-0000-1000-8000-00805f9b34fb";
 
     //MIJI Services
@@ -31,6 +32,10 @@ public class Constants {
     public static final String miji_TEMPERATURE_SERVICE_CHAR_1 = "0000ffe9-0000-1000-8000-00805f9b34fb";
     public static final String miji_TEMPERATURE_SERVICE_CHAR_2 = "0000ffe0-0000-1000-8000-00805f9b34fb";
 
+    //Device Information characteristics, used to pick the calibration profile of the probe
+    public static final String MODEL_NUMBER_CHARACTERISTIC = "00002A24-0000-1000-8000-00805F9B34FB";
+    public static final String FIRMWARE_REVISION_CHARACTERISTIC = "00002A26-0000-1000-8000-00805F9B34FB";
+
 
 
     public static final byte [] ALERT_LEVEL_LOW = { (byte) 0x00};
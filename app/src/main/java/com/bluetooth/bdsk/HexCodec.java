@@ -0,0 +1,103 @@
+package com.bluetooth.bdsk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Hex encoding and decoding of characteristic values, shared by the UI, logging and the
+ * tools that replay captured traces.
+ *
+ * Encoding looks each nibble up in a table and writes straight into a buffer supplied by the
+ * caller, so a caller that keeps its buffer around pays no allocation per packet.
+ * Digits are upper case, two per byte, without separators ("048C").
+ */
+public final class HexCodec {
+    private static final char[] DIGITS = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+    private static final byte[] ASCII_DIGITS = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+    // value of each ASCII character as a hex digit, -1 if it is not one
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        for (int i = 0; i < VALUES.length; i++) {
+            VALUES[i] = -1;
+        }
+        for (int i = 0; i < 10; i++) {
+            VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            VALUES['A' + i] = (byte) (10 + i);
+            VALUES['a' + i] = (byte) (10 + i);
+        }
+    }
+
+    private HexCodec() {
+    }
+
+    /**
+     * Writes length bytes of src as hex digits into dst starting at dst_offset.
+     * dst needs room for 2 * length chars. Returns the number of chars written.
+     */
+    public static int encode(byte[] src, int offset, int length, char[] dst, int dst_offset) {
+        int out = dst_offset;
+        for (int i = offset; i < offset + length; i++) {
+            int b = src[i];
+            dst[out++] = DIGITS[(b >> 4) & 0x0f];
+            dst[out++] = DIGITS[b & 0x0f];
+        }
+        return out - dst_offset;
+    }
+
+    // same as above, writing the digits as ASCII bytes at the position of dst
+    public static int encode(byte[] src, int offset, int length, ByteBuffer dst) {
+        for (int i = offset; i < offset + length; i++) {
+            int b = src[i];
+            dst.put(ASCII_DIGITS[(b >> 4) & 0x0f]);
+            dst.put(ASCII_DIGITS[b & 0x0f]);
+        }
+        return length * 2;
+    }
+
+    // convenience for logging, "[null]" for a missing value
+    public static String toHexString(byte[] bytes) {
+        if (bytes == null) {
+            return "[null]";
+        }
+        char[] chars = new char[bytes.length * 2];
+        encode(bytes, 0, bytes.length, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Parses hex digits, upper or lower case, into dst starting at dst_offset.
+     * Returns the number of bytes written.
+     *
+     * @throws IllegalArgumentException if hex has an odd length or a character which is not a hex digit
+     */
+    public static int decode(CharSequence hex, byte[] dst, int dst_offset) {
+        int length = hex.length();
+        if ((length & 1) != 0) {
+            throw new IllegalArgumentException("odd number of hex digits: " + hex);
+        }
+        int out = dst_offset;
+        for (int i = 0; i < length; i += 2) {
+            dst[out++] = (byte) ((digit(hex, i) << 4) | digit(hex, i + 1));
+        }
+        return out - dst_offset;
+    }
+
+    public static byte[] decode(CharSequence hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        decode(hex, bytes, 0);
+        return bytes;
+    }
+
+    private static int digit(CharSequence hex, int index) {
+        char c = hex.charAt(index);
+        int value = c < VALUES.length ? VALUES[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("not a hex digit at " + index + ": " + hex);
+        }
+        return value;
+    }
+}
@@ -1,8 +1,17 @@
 package com.bluetooth.bdsk;
 
+import com.bluetooth.bdsk.temperature.Calibration;
+import com.bluetooth.bdsk.temperature.TemperatureDecoder;
+
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
+/**
+ * Hex code -> degrees view of the calibration table, kept for code that still looks readings
+ * up by their hex String. The table itself is generated at build time from
+ * src/main/calibration, see Calibration.
+ */
 public final class TemperatureMap {
     Map<String, String> values = new HashMap<>();
 
@@ -11,1297 +20,9 @@ public final class TemperatureMap {
     }
 
     public TemperatureMap(){
-        values.put("048c","-5,6");
-        values.put("048b","-5.5");
-        values.put("048a","-5.4");
-        values.put("0489","-5.3");
-        values.put("0488","-5.1");
-        values.put("0487","-5");
-        values.put("0486","-4.9");
-        values.put("0485","-4.7");
-        values.put("0484","-4.6");
-        values.put("0483","-4.5");
-        values.put("0482","-4.4");
-        values.put("0481","-4.2");
-        values.put("0480","-4.1");
-        values.put("0480","-4");
-        values.put("047f","-3.9");
-        values.put("047e","-3.8");
-        values.put("047d","-3.7");
-        values.put("047d","-3.6");
-        values.put("047c","-3.5");
-        values.put("047b","-3.4");
-        values.put("047a","-3.3");
-        values.put("047a","-3.2");
-        values.put("0479","-3.1");
-        values.put("0478","-3");
-        values.put("0477","-2.9");
-        values.put("0476","-2.8");
-        values.put("0476","-2.7");
-        values.put("0475","-2.6");
-        values.put("0474","-2.5");
-        values.put("0473","-2.4");
-        values.put("0473","-2.3");
-        values.put("0472","-2.2");
-        values.put("0471","-2.1");
-        values.put("0470","-2");
-        values.put("046f","-1.9");
-        values.put("046f","-1.8");
-        values.put("046e","-1.7");
-        values.put("046d","-1.6");
-        values.put("046c","-1.5");
-        values.put("046b","-1.4");
-        values.put("046b","-1.3");
-        values.put("046a","-1.2");
-        values.put("0469","-1.1");
-        values.put("0468","-1");
-        values.put("0467","-0.9");
-        values.put("0467","-0.8");
-        values.put("0466","-0.7");
-        values.put("0465","-0.6");
-        values.put("0464","-0.5");
-        values.put("0463","-0.4");
-
-        values.put("0462","-0.3");
-        values.put("0462","-0.2");
-        values.put("0461","-0.1");
-        values.put("0460","0");
-        values.put("045f","0.1");
-        values.put("045e","0.2");
-        values.put("045d","0.3");
-        values.put("045c","0.4");
-        values.put("045c","0.5");
-        values.put("045b","0.6");
-        values.put("045a","0.7");
-        values.put("0459","0.8");
-        values.put("0458","0.9");
-        values.put("0457","1");
-        values.put("0456","1.1");
-        values.put("0455","1.1");
-        values.put("0455","1.3");
-        values.put("0454","1.4");
-        values.put("0453","1.5");
-        values.put("0452","1.6");
-        values.put("0451","1.7");
-        values.put("0450","1.8");
-        values.put("044f","1.9");
-        values.put("044e","2");
-        values.put("044d","2.1");
-        values.put("044c","2.2");
-        values.put("044c","2.3");
-        values.put("044b","2.4");
-        values.put("044a","2.5");
-        values.put("0449","2.6");
-        values.put("0448","2.7");
-        values.put("0447","2.8");
-        values.put("0446","2.9");
-        values.put("0445","3");
-        values.put("0444","3");
-        values.put("0443","3.1");
-        values.put("0442","3.2");
-        values.put("0441","3.3");
-        values.put("0440","3.4");
-        values.put("043f","3.5");
-        values.put("043e","3.6");
-        values.put("043e","3.7");
-        values.put("043d","3.8");
-        values.put("043c","3.9");
-        values.put("043b","4");
-        values.put("043a","4.1");
-        values.put("0439","4.2");
-        values.put("0438","4.3");
-        values.put("0437","4.4");
-        values.put("0436","4.5");
-        values.put("0435","4.6");
-        values.put("0434","4.7");
-        values.put("0433","4.8");
-        values.put("0432","4.9");
-        values.put("0431","5");
-        values.put("0430","5");
-        values.put("042f","5.1");
-        values.put("042e","5.2");
-        values.put("042d","5.3");
-        values.put("042c","5.4");
-        values.put("042b","5.5");
-        values.put("042a","5.6");
-        values.put("0429","5.7");
-        values.put("0428","5.8");
-        values.put("0427","5.9");
-        values.put("0426","6");
-        values.put("0425","6.1");
-        values.put("0424","6.2");
-        values.put("0423","6.3");
-        values.put("0422","6.4");
-        values.put("0421","6.5");
-        values.put("0420","6.6");
-        values.put("041f","6.7");
-        values.put("041e","6.8");
-        values.put("041d","6.9");
-        values.put("041c","7");
-        values.put("041b","7");
-        values.put("041a","7.1");
-        values.put("0419","7.2");
-        values.put("0418","7.3");
-        values.put("0417","7.4");
-        values.put("0416","7.5");
-        values.put("0415","7.6");
-        values.put("0414","7.7");
-        values.put("0413","7.8");
-        values.put("0412","7.9");
-        values.put("0411","8");
-        values.put("0410","8.1");
-        values.put("040f","8.2");
-        values.put("040e","8.3");
-        values.put("040d","8.4");
-        values.put("040c","8.5");
-        values.put("040b","8.6");
-        values.put("040a","8.7");
-        values.put("0409","8.8");
-        values.put("0408","8.8");
-        values.put("0407","8.9");
-        values.put("0406","9");
-        values.put("0405","9.1");
-        values.put("0404","9.2");
-        values.put("0403","9.3");
-        values.put("0402","9.4");
-        values.put("0401","9.5");
-        values.put("0400","9.5");
-        values.put("03ff","9.6");
-        values.put("03fe","9.7");
-        values.put("03fd","9.8");
-        values.put("03fc","9.9");
-        values.put("03fb","9.9");
-        values.put("03fa","10");
-        values.put("03f9","10.1");
-        values.put("03f8","10.2");
-        values.put("03f7","10.3");
-        values.put("03f6","10.4");
-        values.put("03f5","10.5");
-        values.put("03f4","10.6");
-        values.put("03f3","10.7");
-        values.put("03f2","10.8");
-        values.put("03f1","10.9");
-        values.put("03f0","11");
-        values.put("03ef","11.1");
-        values.put("03ee","11.2");
-        values.put("03ed","11.3");
-        values.put("03ec","11.3");
-        values.put("03eb","11.4");
-        values.put("03ea","11.5");
-        values.put("03e9","11.6");
-        values.put("03e8","11.7");
-        values.put("03e7","11.8");
-        values.put("03e5","11.9");
-        values.put("03e6","11.9");
-        values.put("03e4","12");
-        values.put("03e3","12.1");
-        values.put("03e2","12.2");
-        values.put("03e1","12.3");
-        values.put("03e0","12.4");
-        values.put("03df","12.5");
-        values.put("03de","12.6");
-        values.put("03dd","12.6");
-        values.put("03dc","12.7");
-        values.put("03db","12.8");
-        values.put("03da","12.9");
-        values.put("03d9","13");
-        values.put("03d8","13.1");
-        values.put("03d7","13.1");
-        values.put("03d6","13.2");
-        values.put("03d5","13.3");
-        values.put("03d4","13.4");
-        values.put("03d3","13.5");
-        values.put("03d2","13.6");
-        values.put("03d1","13.7");
-        values.put("03d0","13.7");
-        values.put("03cf","13.8");
-        values.put("03ce","13.9");
-        values.put("03cd","14");
-        values.put("03cb","14.1");
-        values.put("03cc","14.1");
-        values.put("03ca","14.2");
-        values.put("03c9","14.3");
-        values.put("03c8","14.4");
-        values.put("03c7","14.5");
-        values.put("03c6","14.6");
-        values.put("03c5","14.6");
-        values.put("03c4","14.7");
-        values.put("03c3","14.8");
-        values.put("03c2","14.9");
-        values.put("03c1","15");
-        values.put("03c0","15");
-        values.put("03bf","15.1");
-        values.put("03be","15.2");
-        values.put("03bd","15.3");
-        values.put("03bb","15.4");
-        values.put("03bc","15.4");
-        values.put("03ba","15.5");
-        values.put("03b9","15.6");
-        values.put("03b8","15.7");
-        values.put("03b7","15.8");
-        values.put("03b6","15.9");
-        values.put("03b5","16");
-        values.put("03b4","16");
-        values.put("03b3","16.1");
-        values.put("03b2","16.2");
-        values.put("03b1","16.3");
-        values.put("03b0","16.3");
-        values.put("03af","16.4");
-        values.put("03ae","16.5");
-        values.put("03ad","16.6");
-        values.put("03ac","16.7");
-        values.put("03ab","16.8");
-        values.put("03aa","16.8");
-        values.put("03a9","16.9");
-        values.put("03a8","17");
-        values.put("03a7","17.1");
-        values.put("03a6","17.2");
-        values.put("03a5","17.2");
-        values.put("03a4","17.3");
-        values.put("03a3","17.4");
-        values.put("03a2","17.5");
-        values.put("03a1","17.5");
-        values.put("03a0","17.6");
-        values.put("039f","17.7");
-        values.put("039e","17.8");
-        values.put("039d","17.9");
-        values.put("039c","17.9");
-        values.put("039b","18");
-        values.put("039a","18.1");
-        values.put("0399","18.2");
-        values.put("0398","18.2");
-        values.put("0397","18.3");
-        values.put("0396","18.4");
-        values.put("0395","18.5");
-        values.put("0394","18.6");
-        values.put("0393","18.6");
-        values.put("0392","18.7");
-        values.put("0391","18.8");
-        values.put("0390","18.9");
-        values.put("038f","19");
-        values.put("038e","19");
-        values.put("038d","19.1");
-        values.put("038c","19.2");
-        values.put("038b","19.3");
-        values.put("038a","19.3");
-        values.put("0389","19.4");
-        values.put("0387","19.5");
-        values.put("0388","19.5");
-        values.put("0386","19.6");
-        values.put("0385","19.7");
-        values.put("0384","19.8");
-        values.put("0383","19.9");
-        values.put("0382","20");
-        values.put("0381","20");
-        values.put("0380","20.1");
-        values.put("037f","20.2");
-        values.put("037e","20.3");
-        values.put("037d","20.3");
-        values.put("037c","20.4");
-        values.put("037b","20.5");
-        values.put("037a","20.6");
-        values.put("0379","20.6");
-        values.put("0378","20.7");
-        values.put("0377","20.8");
-        values.put("0376","20.9");
-        values.put("0375","20.9");
-        values.put("0374","21");
-        values.put("0373","21.1");
-        values.put("0372","21.2");
-        values.put("0371","21.2");
-        values.put("0370","21.3");
-        values.put("036f","21.4");
-        values.put("036e","21.5");
-        values.put("036d","21.5");
-        values.put("036c","21.6");
-        values.put("036b","21.7");
-        values.put("036a","21.8");
-        values.put("0369","21.8");
-        values.put("0368","21.9");
-        values.put("0367","22");
-        values.put("0366","22");
-        values.put("0365","22.1");
-        values.put("0364","22.2");
-        values.put("0363","22.3");
-        values.put("0362","22.4");
-        values.put("0361","22.4");
-        values.put("0360","22.5");
-        values.put("035f","22.6");
-        values.put("035e","22.7");
-        values.put("035d","22.7");
-        values.put("035c","22.8");
-        values.put("035b","22.9");
-        values.put("035a","23");
-        values.put("0359","23");
-        values.put("0358","23.1");
-        values.put("0357","23.2");
-        values.put("0356","23.3");
-        values.put("0355","23.3");
-        values.put("0354","23.4");
-        values.put("0353","23.5");
-        values.put("0352","23.5");
-        values.put("0351","23.6");
-        values.put("0350","23.7");
-        values.put("034f","23.8");
-        values.put("034e","23.8");
-        values.put("034d","23.9");
-        values.put("034c","24");
-        values.put("034b","24");
-        values.put("034a","24.1");
-        values.put("0349","24.2");
-        values.put("0348","24.3");
-        values.put("0347","24.4");
-        values.put("0346","24.4");
-        values.put("0345","24.5");
-        values.put("0344","24.6");
-        values.put("0343","24.7");
-        values.put("0342","24.7");
-        values.put("0341","24.8");
-        values.put("0340","24.9");
-        values.put("033f","25");
-        values.put("033e","25.1");
-        values.put("033d","25.2");
-        values.put("033c","25.3");
-        values.put("033b","25.3");
-        values.put("033a","25.4");
-        values.put("0339","25.5");
-        values.put("0338","25.6");
-        values.put("0337","25.6");
-        values.put("0336","25.7");
-        values.put("0335","25.8");
-        values.put("0334","25.9");
-        values.put("0333","25.9");
-        values.put("0332","26");
-        values.put("0331","26.1");
-        values.put("0330","26.1");
-        values.put("032f","26.2");
-        values.put("032e","26.3");
-        values.put("032d","26.4");
-        values.put("032c","26.4");
-        values.put("032b","26.5");
-        values.put("032a","26.6");
-        values.put("0329","26.7");
-        values.put("0328","26.7");
-        values.put("0327","26.8");
-        values.put("0326","26.9");
-        values.put("0325","27");
-        values.put("0324","27");
-        values.put("0323","27.1");
-        values.put("0322","27.2");
-        values.put("0321","27.3");
-        values.put("0320","27.4");
-        values.put("031f","27.4");
-        values.put("031e","27.5");
-        values.put("031d","27.6");
-        values.put("031c","27.7");
-        values.put("031b","27.8");
-        values.put("031a","27.8");
-        values.put("0319","27.9");
-        values.put("0318","28");
-        values.put("0317","28.1");
-        values.put("0316","28.1");
-        values.put("0315","28.2");
-        values.put("0314","28.3");
-        values.put("0313","28.4");
-        values.put("0312","28.5");
-        values.put("0311","28.5");
-        values.put("0310","28.6");
-        values.put("030f","28.6");
-        values.put("030e","28.7");
-        values.put("030d","28.8");
-        values.put("030c","28.9");
-        values.put("030b","28.9");
-        values.put("030a","29");
-        values.put("0309","29.1");
-        values.put("0308","29.1");
-        values.put("0307","29.2");
-        values.put("0306","29.3");
-        values.put("0305","29.4");
-        values.put("0304","29.5");
-        values.put("0303","29.6");
-        values.put("0302","29.7");
-        values.put("0301","29.7");
-        values.put("02ff","29.8");
-        values.put("0300","29.8");
-        values.put("02fe","29.9");
-        values.put("02fc","30");
-        values.put("02fd","30");
-        values.put("02fa","30.1");
-        values.put("02fb","30.1");
-        values.put("02f9","30.2");
-        values.put("02f8","30.3");
-        values.put("02f6","30.4");
-        values.put("02f7","30.4");
-        values.put("02f5","30.5");
-        values.put("02f3","30.6");
-        values.put("02f4","30.6");
-        values.put("02f2","30.7");
-        values.put("02f1","30.8");
-        values.put("02f0","30.8");
-        values.put("02ef","30.8");
-        values.put("02ee","30.9");
-        values.put("02ec","31");
-        values.put("02ed","31");
-        values.put("02eb","31.1");
-        values.put("02ea","31.2");
-        values.put("02e9","31.3");
-        values.put("02e8","31.3");
-        values.put("02e7","31.4");
-        values.put("02e6","31.5");
-        values.put("02e5","31.6");
-        values.put("02e4","31.6");
-        values.put("02e3","31.7");
-        values.put("02e2","31.8");
-        values.put("02e1","31.8");
-        values.put("02e0","31.9");
-        values.put("02df","32");
-        values.put("02de","32.1");
-        values.put("02dc","32.2");
-        values.put("02dd","32.2");
-        values.put("02da","32.3");
-        values.put("02db","32.4");
-        values.put("02d9","32.5");
-        values.put("02d8","32.6");
-        values.put("02d7","32.7");
-        values.put("02d6","32.7");
-        values.put("02d5","32.8");
-        values.put("02d3","32.9");
-        values.put("02d4","32.9");
-        values.put("02d2","33");
-        values.put("02d0","33.1");
-        values.put("02d1","33.1");
-        values.put("02cf","33.2");
-        values.put("02ce","33.3");
-        values.put("02cd","33.4");
-        values.put("02cc","33.5");
-        values.put("02cb","33.5");
-        values.put("02ca","33.6");
-        values.put("02c9","33.7");
-        values.put("02c8","33.7");
-        values.put("02c7","33.8");
-        values.put("02c6","33.9");
-        values.put("02c5","34");
-        values.put("02c4","34");
-        values.put("02c3","34.1");
-        values.put("02c2","34.2");
-        values.put("02c1","34.2");
-        values.put("02c0","34.3");
-        values.put("02bf","34.4");
-        values.put("02be","34.5");
-        values.put("02bd","34.5");
-        values.put("02bc","34.6");
-        values.put("02bb","34.7");
-        values.put("02ba","34.8");
-        values.put("02b9","34.8");
-        values.put("02b8","34.9");
-        values.put("02b7","35");
-        values.put("02b6","35");
-        values.put("02b5","35.1");
-        values.put("02b3","35.2");
-        values.put("02b4","35.2");
-        values.put("02b2","35.3");
-        values.put("02b0","35.4");
-        values.put("02b1","35.4");
-        values.put("02af","35.5");
-        values.put("02ae","35.6");
-        values.put("02ad","35.7");
-        values.put("02ac","35.7");
-        values.put("02ab","35.8");
-        values.put("02aa","35.9");
-        values.put("02a9","36");
-        values.put("02a8","36");
-        values.put("02a7","36.1");
-        values.put("02a6","36.2");
-        values.put("02a5","36.3");
-        values.put("02a4","36.3");
-        values.put("02a3","36.4");
-        values.put("02a1","36.5");
-        values.put("02a2","36.5");
-        values.put("02a0","36.6");
-        values.put("029f","36.7");
-        values.put("029d","36.8");
-        values.put("029e","36.8");
-        values.put("029c","36.9");
-        values.put("029a","37");
-        values.put("029b","37");
-        values.put("0299","37.1");
-        values.put("0297","37.2");
-        values.put("0298","37.2");
-        values.put("0296","37.3");
-        values.put("0295","37.4");
-        values.put("0293","37.5");
-        values.put("0294","37.5");
-        values.put("0292","37.6");
-        values.put("0291","37.7");
-        values.put("0290","37.8");
-        values.put("028f","37.8");
-        values.put("028e","37.9");
-        values.put("028c","38");
-        values.put("028d","38");
-        values.put("028b","38.1");
-        values.put("028a","38.2");
-        values.put("0289","38.3");
-        values.put("0288","38.3");
-        values.put("0287","38.4");
-        values.put("0286","38.4");
-        values.put("0285","38.5");
-        values.put("0284","38.6");
-        values.put("0283","38.7");
-        values.put("0282","38.7");
-        values.put("0281","38.8");
-        values.put("0280","38.9");
-        values.put("027f","39");
-        values.put("027e","39");
-        values.put("027d","39.1");
-        values.put("027c","39.2");
-        values.put("027b","39.2");
-        values.put("027a","39.3");
-        values.put("0279","39.4");
-        values.put("0278","39.5");
-        values.put("0277","39.5");
-        values.put("0275","39.6");
-        values.put("0276","39.6");
-        values.put("0274","39.7");
-        values.put("0273","39.7");
-        values.put("0272","39.8");
-        values.put("0271","39.9");
-        values.put("0270","40");
-        values.put("026f","40.1");
-        values.put("026e","40.1");
-        values.put("026d","40.2");
-        values.put("026c","40.3");
-        values.put("026b","40.4");
-        values.put("026a","40.4");
-        values.put("0269","40.5");
-        values.put("0268","40.6");
-        values.put("0266","40.7");
-        values.put("0267","40.7");
-        values.put("0265","40.8");
-        values.put("0264","40.9");
-        values.put("0263","40.9");
-        values.put("0262","41");
-        values.put("0261","41.1");
-        values.put("0260","41.2");
-        values.put("025f","41.2");
-        values.put("025e","41.3");
-        values.put("025d","41.4");
-        values.put("025c","41.4");
-        values.put("025b","41.5");
-        values.put("025a","41.6");
-        values.put("0259","41.7");
-        values.put("0258","41.8");
-        values.put("0257","41.8");
-        values.put("0256","41.9");
-        values.put("0254","42");
-        values.put("0255","42");
-        values.put("0253","42.1");
-        values.put("0252","42.2");
-        values.put("0251","42.3");
-        values.put("0250","42.3");
-        values.put("024f","42.4");
-        values.put("024e","42.5");
-        values.put("024d","42.6");
-        values.put("024c","42.7");
-        values.put("024b","42.7");
-        values.put("024a","42.8");
-        values.put("0249","42.9");
-        values.put("0248","43");
-        values.put("0247","43");
-        values.put("0246","43.1");
-        values.put("0245","43.2");
-        values.put("0244","43.2");
-        values.put("0243","43.3");
-        values.put("0242","43.4");
-        values.put("0241","43.5");
-        values.put("0240","43.6");
-        values.put("023f","43.7");
-        values.put("023e","43.7");
-        values.put("023d","43.8");
-        values.put("023c","43.9");
-        values.put("023b","44");
-        values.put("023a","44");
-        values.put("0239","44.1");
-        values.put("0238","44.2");
-        values.put("0237","44.3");
-        values.put("0236","44.3");
-        values.put("0235","44.4");
-        values.put("0234","44.5");
-        values.put("0232","44.6");
-        values.put("0233","44.6");
-        values.put("0231","44.7");
-        values.put("0230","44.8");
-        values.put("022f","44.9");
-        values.put("022e","45");
-        values.put("022d","45.1");
-        values.put("022c","45.2");
-        values.put("022b","45.3");
-        values.put("022a","45.4");
-        values.put("0229","45.5");
-        values.put("0228","45.5");
-        values.put("0227","45.6");
-        values.put("0226","45.7");
-        values.put("0225","45.8");
-        values.put("0224","45.9");
-        values.put("0223","45.9");
-        values.put("0222","46");
-        values.put("0221","46.1");
-        values.put("0220","46.1");
-        values.put("021f","46.2");
-        values.put("021e","46.3");
-        values.put("021d","46.4");
-        values.put("021c","46.5");
-        values.put("021b","46.6");
-        values.put("021a","46.7");
-        values.put("0219","46.8");
-        values.put("0218","46.9");
-        values.put("0217","47");
-        values.put("0216","47.1");
-        values.put("0215","47.1");
-        values.put("0214","47.2");
-        values.put("0213","47.3");
-        values.put("0212","47.4");
-        values.put("0211","47.5");
-        values.put("0210","47.5");
-        values.put("020f","47.6");
-        values.put("020e","47.7");
-        values.put("020d","47.8");
-        values.put("020c","47.9");
-        values.put("020b","47.9");
-        values.put("020a","48");
-        values.put("0209","48.1");
-        values.put("0208","48.2");
-        values.put("0207","48.3");
-        values.put("0206","48.3");
-        values.put("0205","48.4");
-        values.put("0204","48.5");
-        values.put("0203","48.6");
-        values.put("0202","48.7");
-        values.put("0201","48.7");
-        values.put("0200","48.8");
-        values.put("01ff","48.9");
-        values.put("01fe","49");
-        values.put("01fd","49.1");
-        values.put("01fc","49.1");
-        values.put("01fb","49.2");
-        values.put("01fa","49.3");
-        values.put("01f9","49.4");
-        values.put("01f8","49.5");
-        values.put("01f7","49.5");
-        values.put("01f6","49.6");
-        values.put("01f5","49.7");
-        values.put("01f4","49.8");
-        values.put("01f3","49.9");
-        values.put("01f2","50");
-        values.put("01f1","50.1");
-        values.put("01f0","50.1");
-        values.put("01ef","50.2");
-        values.put("01ee","50.3");
-        values.put("01ed","50.4");
-        values.put("01ec","50.5");
-        values.put("01eb","50.6");
-        values.put("01ea","50.6");
-        values.put("01e9","50.7");
-        values.put("01e8","50.7");
-        values.put("01e7","50.8");
-        values.put("01e6","50.9");
-        values.put("01e5","50.9");
-        values.put("01e4","51");
-        values.put("01e3","51.1");
-        values.put("01e2","51.2");
-        values.put("01e1","51.3");
-        values.put("01e0","51.4");
-        values.put("01df","51.5");
-        values.put("01de","51.5");
-        values.put("01dd","51.5");
-        values.put("01dc","51.6");
-        values.put("01db","51.7");
-        values.put("01da","51.7");
-        values.put("01d9","51.8");
-        values.put("01d8","51.9");
-        values.put("01d7","52");
-        values.put("01d5","52.1");
-        values.put("01d6","52.1");
-        values.put("01d4","52.2");
-        values.put("01d3","52.3");
-        values.put("01d2","52.4");
-        values.put("01d1","52.5");
-        values.put("01d0","52.6");
-        values.put("01cf","52.7");
-        values.put("01ce","52.7");
-        values.put("01cd","52.8");
-        values.put("01cc","52.9");
-        values.put("01cb","53");
-        values.put("01ca","53.1");
-        values.put("01c8","53.2");
-        values.put("01c9","53.2");
-        values.put("01c7","53.3");
-        values.put("01c6","53.4");
-        values.put("01c5","53.5");
-        values.put("01c4","53.6");
-        values.put("01c3","53.7");
-        values.put("01c2","53.8");
-        values.put("01c1","53.8");
-        values.put("01c0","53.9");
-        values.put("01be","54");
-        values.put("01bf","54.1");
-        values.put("01bd","54.2");
-        values.put("01bc","54.3");
-        values.put("01bb","54.4");
-        values.put("01ba","54.4");
-        values.put("01b9","54.5");
-        values.put("01b8","54.6");
-        values.put("01b7","54.7");
-        values.put("01b6","54.8");
-        values.put("01b5","54.9");
-        values.put("01b4","54.9");
-        values.put("01b3","55");
-        values.put("01b2","55.1");
-        values.put("01b1","55.2");
-        values.put("01b0","55.3");
-        values.put("01af","55.4");
-        values.put("01ae","55.5");
-        values.put("01ad","55.6");
-        values.put("01ac","55.7");
-        values.put("01ab","55.8");
-        values.put("01aa","55.9");
-        values.put("01a9","56");
-        values.put("01a8","56");
-        values.put("01a7","56.1");
-        values.put("01a6","56.2");
-        values.put("01a5","56.3");
-        values.put("01a4","56.4");
-        values.put("01a3","56.5");
-        values.put("01a2","56.6");
-        values.put("01a1","56.7");
-        values.put("01a0","56.8");
-        values.put("019f","56.9");
-        values.put("019e","57");
-        values.put("019d","57.1");
-        values.put("019c","57.2");
-        values.put("019b","57.3");
-        values.put("019a","57.4");
-        values.put("0199","57.5");
-        values.put("0198","57.6");
-        values.put("0197","57.7");
-        values.put("0196","57.8");
-        values.put("0195","57.9");
-        values.put("0194","58");
-        values.put("0193","58.1");
-        values.put("0192","58.2");
-        values.put("0190","58.3");
-        values.put("0191","58.3");
-        values.put("018f","58.4");
-        values.put("018e","58.5");
-        values.put("018d","58.6");
-        values.put("018c","58.7");
-        values.put("018b","58.8");
-        values.put("018a","58.9");
-        values.put("0189","59");
-        values.put("0188","59.1");
-        values.put("0187","59.2");
-        values.put("0186","59.3");
-        values.put("0185","59.4");
-        values.put("0184","59.5");
-        values.put("0183","59.6");
-        values.put("0182","59.7");
-        values.put("0181","59.8");
-        values.put("0180","59.9");
-        values.put("017f","60");
-        values.put("017e","60.1");
-        values.put("017d","60.3");
-        values.put("017c","60.4");
-        values.put("017b","60.5");
-        values.put("017a","60.6");
-        values.put("0179","60.7");
-        values.put("0178","60.8");
-        values.put("0177","61");
-        values.put("0176","61.1");
-        values.put("0175","61.2");
-        values.put("0174","61.3");
-        values.put("0173","61.4");
-        values.put("0172","61.6");
-        values.put("0171","61.7");
-        values.put("0170","61.8");
-        values.put("016f","61.9");
-        values.put("016e","62");
-        values.put("016d","62.1");
-        values.put("016c","62.3");
-        values.put("016b","62.4");
-        values.put("016a","62.5");
-        values.put("0169","62.6");
-        values.put("0168","62.8");
-        values.put("0167","62.9");
-        values.put("0166","63.1");
-        values.put("0165","63.2");
-        values.put("0164","63.3");
-        values.put("0163","63.4");
-        values.put("0162","63.5");
-        values.put("0161","63.7");
-        values.put("0160","63.8");
-        values.put("015f","63.9");
-        values.put("015e","64");
-        values.put("015d","64.1");
-        values.put("015c","64.2");
-        values.put("015b","64.3");
-        values.put("015a","64.4");
-        values.put("0159","64.5");
-        values.put("0158","64.6");
-        values.put("0157","64.7");
-        values.put("0156","64.8");
-        values.put("0155","64.9");
-        values.put("0154","65");
-        values.put("0153","65.1");
-        values.put("0152","65.2");
-        values.put("0151","65.3");
-        values.put("0150","65.4");
-        values.put("014f","65.5");
-        values.put("014e","65.6");
-        values.put("014d","65.7");
-        values.put("014d","65.8");
-        values.put("014c","65.9");
-        values.put("014b","66");
-        values.put("014a","66.1");
-        values.put("0149","66.2");
-        values.put("0148","66.3");
-        values.put("0147","66.4");
-        values.put("0146","66.5");
-        values.put("0145","66.6");
-        values.put("0144","66.7");
-        values.put("0143","66.8");
-        values.put("0142","66.9");
-        values.put("0141","67");
-        values.put("0141","67.1");
-        values.put("0140","67.2");
-        values.put("013f","67.3");
-        values.put("013e","67.4");
-        values.put("013d","67.5");
-        values.put("013c","67.6");
-        values.put("013b","67.7");
-        values.put("013b","67.8");
-        values.put("013a","67.9");
-        values.put("0139","68");
-        values.put("0138","68.1");
-        values.put("0137","68.2");
-        values.put("0137","68.3");
-        values.put("0136","68.4");
-        values.put("0135","68.5");
-        values.put("0134","68.6");
-        values.put("0133","68.7");
-        values.put("0132","68.8");
-        values.put("0131","68.9");
-        values.put("0131","69");
-        values.put("0130","69.1");
-        values.put("012f","69.2");
-        values.put("012e","69.3");
-        values.put("012d","69.4");
-        values.put("012c","69.5");
-        values.put("012b","69.6");
-        values.put("012a","69.7");
-        values.put("0129","69.8");
-        values.put("0128","69.9");
-        values.put("0128","70");
-        values.put("0127","70");
-        values.put("0127","70.1");
-        values.put("0126","70.2");
-        values.put("0125","70.3");
-        values.put("0124","70.4");
-        values.put("0123","70.5");
-        values.put("0123","70.6");
-        values.put("0122","70.7");
-        values.put("0121","70.8");
-        values.put("0120","70.9");
-        values.put("011f","71");
-        values.put("011f","71.1");
-        values.put("011e","71.2");
-        values.put("011d","71.3");
-        values.put("011c","71.4");
-        values.put("011c","71.5");
-        values.put("011b","71.6");
-        values.put("011a","71.7");
-        values.put("0119","71.8");
-        values.put("0118","71.9");
-        values.put("0118","72");
-        values.put("0117","72.1");
-        values.put("0116","72.2");
-        values.put("0115","72.3");
-        values.put("0115","72.4");
-        values.put("0114","72.5");
-        values.put("0113","72.6");
-        values.put("0113","72.7");
-        values.put("0112","72.8");
-        values.put("0112","72.9");
-        values.put("0111","73");
-        values.put("0110","73.1");
-        values.put("010f","73.2");
-        values.put("010f","73.3");
-        values.put("010e","73.4");
-        values.put("010d","73.5");
-        values.put("010c","73.6");
-        values.put("010c","73.7");
-        values.put("010b","73.8");
-        values.put("010a","73.9");
-        values.put("010a","74");
-        values.put("0109","74.1");
-        values.put("0108","74.2");
-        values.put("0107","74.3");
-        values.put("0107","74.4");
-        values.put("0106","74.5");
-        values.put("0104","74.6");
-        values.put("0105","74.6");
-        values.put("0104","74.7");
-        values.put("0104","74.8");
-        values.put("0103","74.9");
-        values.put("0102","75");
-        values.put("0102","75.1");
-        values.put("0101","75.2");
-        values.put("0100","75.3");
-        values.put("00ff","75.4");
-        values.put("00ff","75.5");
-        values.put("00fe","75.6");
-        values.put("00fd","75.7");
-        values.put("00fd","75.8");
-        values.put("00fc","75.9");
-        values.put("00fb","76");
-        values.put("00fb","76.1");
-        values.put("00fa","76.2");
-        values.put("00f9","76.3");
-        values.put("00f9","76.4");
-        values.put("00f8","76.5");
-        values.put("00f7","76.6");
-        values.put("00f7","76.7");
-        values.put("00f6","76.8");
-        values.put("00f5","76.9");
-        values.put("00f5","77");
-        values.put("00f4","77.1");
-        values.put("00f3","77.2");
-        values.put("00f2","77.3");
-        values.put("00f2","77.4");
-        values.put("00f1","77.5");
-        values.put("00f0","77.6");
-        values.put("00f0","77.7");
-        values.put("00ef","77.8");
-        values.put("00ee","77.9");
-        values.put("00ee","78");
-        values.put("00ed","78.1");
-        values.put("00ed","78.2");
-        values.put("00ec","78.3");
-        values.put("00eb","78.4");
-        values.put("00eb","78.5");
-        values.put("00ea","78.6");
-        values.put("00e9","78.7");
-        values.put("00e9","78.8");
-        values.put("00e8","78.9");
-        values.put("00e7","79");
-        values.put("00e7","79.1");
-        values.put("00e6","79.2");
-        values.put("00e5","79.3");
-        values.put("00e5","79.4");
-        values.put("00e4","79.5");
-        values.put("00e4","79.6");
-        values.put("00e3","79.7");
-        values.put("00e2","79.8");
-        values.put("00e2","79.9");
-        values.put("00e1","80");
-        values.put("00e0","80.1");
-        values.put("00e0","80.2");
-        values.put("00df","80.3");
-        values.put("00df","80.4");
-        values.put("00de","80.5");
-        values.put("00dd","80.6");
-        values.put("00dd","80.7");
-        values.put("00dc","80.8");
-        values.put("00dc","80.9");
-        values.put("00db","81");
-        values.put("00da","81.1");
-        values.put("00da","81.2");
-        values.put("00d9","81.3");
-        values.put("00d8","81.4");
-        values.put("00d8","81.5");
-        values.put("00d7","81.6");
-        values.put("00d7","81.7");
-        values.put("00d6","81.8");
-        values.put("00d6","81.9");
-        values.put("00d5","82");
-        values.put("00d4","82.1");
-        values.put("00d4","82.2");
-        values.put("00d3","82.3");
-        values.put("00d3","82.4");
-        values.put("00d2","82.5");
-        values.put("00d1","82.6");
-        values.put("00d1","82.7");
-        values.put("00d0","82.8");
-        values.put("00d0","82.9");
-        values.put("00cf","83");
-        values.put("00cf","83.1");
-        values.put("00ce","83.2");
-        values.put("00cd","83.3");
-        values.put("00cd","83.4");
-        values.put("00cc","83.5");
-        values.put("00cc","83.6");
-        values.put("00cc","83.7");
-        values.put("00cb","83.8");
-        values.put("00cb","83.9");
-        values.put("00cb","84");
-        values.put("00cb","84.1");
-        values.put("00ca","84.2");
-        values.put("00ca","84.3");
-        values.put("00c9","84.4");
-        values.put("00c8","84.4");
-        values.put("00c7","84.5");
-        values.put("00c6","84.6");
-        values.put("00c6","84.7");
-        values.put("00c5","84.8");
-        values.put("00c5","84.9");
-        values.put("00c4","85");
-        values.put("00c4","85.1");
-        values.put("00c3","85.2");
-        values.put("00c3","85.3");
-        values.put("00c3","85.4");
-        values.put("00c2","85.5");
-        values.put("00c2","85.6");
-        values.put("00c1","85.7");
-        values.put("00c1","85.8");
-        values.put("00c1","85.9");
-        values.put("00c0","86");
-        values.put("00c0","86.1");
-        values.put("00bf","86.2");
-        values.put("00bf","86.3");
-        values.put("00be","86.4");
-        values.put("00be","86.5");
-        values.put("00bd","86.6");
-        values.put("00bc","86.7");
-        values.put("00bc","86.8");
-        values.put("00bb","86.9");
-        values.put("00bb","87");
-        values.put("00ba","87.1");
-        values.put("00ba","87.2");
-        values.put("00b9","87.3");
-        values.put("00b9","87.4");
-        values.put("00b9","87.5");
-        values.put("00b8","87.6");
-        values.put("00b8","87.7");
-        values.put("00b7","87.8");
-        values.put("00b7","87.9");
-        values.put("00b6","88");
-        values.put("00b6","88.1");
-        values.put("00b5","88.2");
-        values.put("00b5","88.3");
-        values.put("00b4","88.4");
-        values.put("00b4","88.5");
-        values.put("00b3","88.6");
-        values.put("00b3","88.7");
-        values.put("00b2","88.8");
-        values.put("00b2","88.9");
-        values.put("00b1","89");
-        values.put("00b1","89.1");
-        values.put("00b0","89.2");
-        values.put("00b0","89.3");
-        values.put("00af","89.4");
-        values.put("00af","89.5");
-        values.put("00ae","89.6");
-        values.put("00ae","89.7");
-        values.put("00ad","89.8");
-        values.put("00ad","89.9");
-        values.put("00ac","90");
-        values.put("00ac","90.1");
-        values.put("00ab","90.2");
-        values.put("00ab","90.3");
-        values.put("00aa","90.4");
-        values.put("00a9","90.5");
-        values.put("00a9","90.6");
-        values.put("00a8","90.7");
-        values.put("00a8","90.8");
-        values.put("00a8","90.9");
-        values.put("00a7","91");
-        values.put("00a7","91.1");
-        values.put("00a6","91.2");
-        values.put("00a6","91.3");
-        values.put("00a5","91.4");
-        values.put("00a5","91.5");
-        values.put("00a5","91.6");
-        values.put("00a4","91.7");
-        values.put("00a4","91.8");
-        values.put("00a3","91.9");
-        values.put("00a3","92");
-        values.put("00a2","92.1");
-        values.put("00a2","92.2");
-        values.put("00a1","92.3");
-        values.put("00a1","92.4");
-        values.put("00a1","92.5");
-        values.put("00a0","92.6");
-        values.put("00a0","92.7");
-        values.put("009f","92.8");
-        values.put("009f","92.9");
-        values.put("009e","93");
-        values.put("009e","93.1");
-        values.put("009d","93.2");
-        values.put("009d","93.3");
-        values.put("009d","93.4");
-        values.put("009c","93.5");
-        values.put("009c","93.6");
-        values.put("009b","93.7");
-        values.put("009b","93.8");
-        values.put("009a","93.9");
-        values.put("009a","94");
-        values.put("0099","94.1");
-        values.put("0099","94.2");
-        values.put("0099","94.3");
-        values.put("0098","94.4");
-        values.put("0098","94.5");
-        values.put("0097","94.6");
-        values.put("0097","94.7");
-        values.put("0097","94.8");
-        values.put("0096","94.9");
-        values.put("0096","95");
-        values.put("0095","95.1");
-        values.put("0095","95.2");
-        values.put("0095","95.3");
-        values.put("0094","95.4");
-        values.put("0094","95.5");
-        values.put("0093","95.6");
-        values.put("0093","95.7");
-        values.put("0093","95.8");
-        values.put("0092","95.9");
-        values.put("0092","96");
-        values.put("0091","96.1");
-        values.put("0091","96.2");
-        values.put("0091","96.3");
-        values.put("0090","96.4");
-        values.put("0090","96.5");
-        values.put("008f","96.6");
-        values.put("008f","96.7");
-        values.put("008f","96.8");
-        values.put("008e","96.9");
-        values.put("008e","97");
-        values.put("008d","97.1");
-        values.put("008d","97.2");
-        values.put("008d","97.3");
-        values.put("008c","97.4");
-        values.put("008c","97.5");
-        values.put("008b","97.6");
-        values.put("008b","97.7");
-        values.put("008b","97.8");
-        values.put("008a","97.9");
-        values.put("008a","98");
-        values.put("008a","98.1");
-        values.put("0089","98.2");
-        values.put("0089","98.3");
-        values.put("0088","98.4");
-        values.put("0088","98.5");
-        values.put("0088","98.6");
-        values.put("0087","98.7");
-        values.put("0087","98.8");
-        values.put("0087","98.9");
-        values.put("0086","99");
-        values.put("0086","99.1");
-        values.put("0085","99.2");
-        values.put("0085","99.3");
-        values.put("0085","99.4");
-        values.put("0084","99.5");
-        values.put("0084","99.6");
-        values.put("0084","99.7");
-        values.put("0083","99.8");
-        values.put("0083","99.9");
-        values.put("0083","100");
-        values.put("0082","100.1");
-        values.put("0082","100.2");
-        values.put("0082","100.3");
-        values.put("0081","100.4");
-        values.put("0081","100.5");
-        values.put("0080","100.6");
-        values.put("0080","100.7");
-        values.put("0080","100.8");
-        values.put("007f","100.9");
-        values.put("007f","101");
-        values.put("007f","101.1");
-        values.put("007e","101.2");
-        values.put("007e","101.3");
-        values.put("007e","101.4");
-        values.put("007d","101.5");
-        values.put("007d","101.6");
-        values.put("007d","101.7");
-        values.put("007c","101.8");
-        values.put("007c","101.9");
-        values.put("007c","102");
-        values.put("007b","102.1");
-        values.put("007b","102.2");
-        values.put("007b","102.3");
-        values.put("007a","102.4");
-        values.put("007a","102.5");
-        values.put("007a","102.6");
-        values.put("0079","102.7");
-        values.put("0079","102.8");
-        values.put("0079","102.9");
-        values.put("0078","103");
-        values.put("0078","103.1");
-        values.put("0078","103.2");
-        values.put("0077","103.3");
-        values.put("0077","103.4");
-        values.put("0077","103.5");
-        values.put("0076","103.6");
-        values.put("0076","103.7");
-        values.put("0076","103.8");
-        values.put("0075","103.9");
-        values.put("0075","104");
-        values.put("0075","104.1");
-        values.put("0074","104.2");
-        values.put("0074","104.3");
-        values.put("0074","104.4");
-        values.put("0074","104.5");
-        values.put("0073","104.6");
-        values.put("0073","104.7");
-        values.put("0073","104.8");
-        values.put("0072","104.9");
-        values.put("0072","105");
-        values.put("0072","105.1");
-        values.put("0071","105.2");
-        values.put("0071","105.3");
-        values.put("0071","105.4");
-        values.put("0070","105.5");
-        values.put("0070","105.6");
-        values.put("0070","105.7");
-        values.put("0070","105.8");
-        values.put("006f","105.9");
-        values.put("006f","106");
-        values.put("006f","106.1");
-        values.put("006e","106.2");
-        values.put("006e","106.3");
-        values.put("006e","106.4");
-        values.put("006d","106.5");
-        values.put("006d","106.6");
-        values.put("006d","106.7");
-        values.put("006d","106.8");
-        values.put("006c","106.9");
-        values.put("006c","107");
-        values.put("006c","107.1");
-        values.put("006b","107.2");
-        values.put("006b","107.3");
-        values.put("006b","107.4");
-        values.put("006b","107.5");
-        values.put("006a","107.6");
-        values.put("006a","107.7");
-        values.put("006a","107.8");
-        values.put("0069","107.9");
-        values.put("0069","108");
-        values.put("0069","108.1");
-        values.put("0069","108.2");
-        values.put("0068","108.3");
-        values.put("0068","108.4");
-        values.put("0067","108.5");
-        values.put("0067","108.6");
-        values.put("0067","108.7");
-        values.put("0067","108.8");
-        values.put("0066","108.9");
-        values.put("0066","109");
-        values.put("0066","109.1");
-        values.put("0065","109.2");
-        values.put("0065","109.3");
-        values.put("0065","109.4");
-        values.put("0065","109.5");
-        values.put("0064","109.6");
-        values.put("0064","109.7");
-        values.put("0063","109.8");
-        values.put("0063","109.9");
-        values.put("0062","110");
+        TemperatureDecoder decoder = Calibration.decoder();
+        for (int code = decoder.firstCode(); code <= decoder.lastCode(); code++) {
+            values.put(String.format(Locale.US, "%04x", code), TemperatureDecoder.format(decoder.decodeRaw(code)));
+        }
     }
 }
@@ -17,13 +17,19 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Message;
+import android.os.SystemClock;
 import android.support.annotation.Nullable;
 import android.util.Log;
 
 import com.bluetooth.bdsk.Constants;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Our new Activity needs to be able to use the BleAdapterService as a kind of Bluetooth API.
@@ -35,12 +41,18 @@ import java.util.UUID;
  * to interact with it and even perform interprocess communication (IPC).*/
 public class BleAdapterService extends Service {
     private BluetoothAdapter bluetooth_adapter;
-    private BluetoothGatt bluetooth_gatt;
     private BluetoothManager bluetooth_manager;
-    private Handler activity_handler = null;
-    private BluetoothDevice device;
-    private BluetoothGattDescriptor descriptor;
-    private boolean connected = false;
+    // every bound activity gets the connection events, see addActivityHandler()
+    private final List<Handler> activity_handlers = new CopyOnWriteArrayList<>();
+    // consumers of the readings, see subscribe()
+    private final List<ReadingSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private Handler timeout_handler;
+    // one connection per device address, see GattConnection. A ConcurrentMap, Map.remove(key, value)
+    // only exists from API 24
+    private final ConcurrentMap<String, GattConnection> connections = new ConcurrentHashMap<>();
+    private final Random backoff_random = new Random();
+    // samples the RSSI of every device that asked for it, see startRssiSampling()
+    private RssiScheduler rssi_scheduler;
     public boolean alarm_playing = false;
 
     // messages sent back to activity
@@ -51,7 +63,21 @@ public class BleAdapterService extends Service {
     public static final int GATT_CHARACTERISTIC_WRITTEN = 5;
     public static final int GATT_REMOTE_RSSI = 6;
     public static final int MESSAGE = 7;
-    public static final int NOTIFICATION_OR_INDICATION_RECEIVED = 8;
+    // notifications and indications are not sent as messages, see subscribe()
+    public static final int GATT_STATE_CHANGED = 9;
+    // a link profile was applied or the MTU negotiated, see setLinkProfile()
+    public static final int GATT_LINK_CHANGED = 10;
+
+    // connection states, see GATT_STATE_CHANGED and getState()
+    public static final int STATE_DISCONNECTED = 0;
+    public static final int STATE_CONNECTING = 1;
+    public static final int STATE_DISCOVERING = 2;
+    public static final int STATE_SUBSCRIBING = 3;
+    public static final int STATE_STREAMING = 4;
+    // link lost, waiting before the next reconnection attempt
+    public static final int STATE_BACKOFF = 5;
+    public static final String[] STATE_NAMES = {
+            "disconnected", "connecting", "discovering", "subscribing", "streaming", "waiting to reconnect"};
 
     // message parms
     public static final String PARCEL_DESCRIPTOR_UUID = "DESCRIPTOR_UUID";
@@ -60,6 +86,17 @@ public class BleAdapterService extends Service {
     public static final String PARCEL_VALUE = "VALUE";
     public static final String PARCEL_RSSI = "RSSI";
     public static final String PARCEL_TEXT = "TEXT";
+    // address of the device a message is about, present on every message but general console text
+    public static final String PARCEL_DEVICE_ADDRESS = "DEVICE_ADDRESS";
+    public static final String PARCEL_STATE = "STATE";
+    // time from link loss to streaming again, only on the GATT_STATE_CHANGED ending a recovery
+    public static final String PARCEL_RECOVERY_MS = "RECOVERY_MS";
+    // subscription modes, see setSubscriptionState()
+    public static final int SUBSCRIBE_NOTIFICATIONS = 1;
+    public static final int SUBSCRIBE_INDICATIONS = 2;
+
+    public static final String PARCEL_LINK_PROFILE = "LINK_PROFILE";
+    public static final String PARCEL_MTU = "MTU";
 
     //When we create a BleAdapterService object, this code will be executed.
     @Override
@@ -74,10 +111,97 @@ public class BleAdapterService extends Service {
         if (bluetooth_adapter == null) {
             return;
         }
+        timeout_handler = new Handler();
+        rssi_scheduler = new RssiScheduler(new RssiScheduler.Source() {
+            @Override
+            public int queuedOperations(String address) {
+                GattConnection connection = connections.get(address);
+                return connection == null || !connection.connected ? -1 : connection.operation_queue.size();
+            }
+
+            @Override
+            public GattFuture<Integer> readRssi(String address) {
+                return readRemoteRssiAsync(address);
+            }
+        });
+    }
+
+    @Override
+    public void onDestroy() {
+        // nobody is left to talk to the devices, do not leak their connections
+        for (GattConnection connection : connections.values()) {
+            timeout_handler.removeCallbacks(connection.reconnect);
+            connection.operation_queue.clear();
+            if (connection.gatt != null) {
+                connection.gatt.close();
+            }
+        }
+        connections.clear();
+        if (rssi_scheduler != null) {
+            rssi_scheduler.quit();
+        }
+        super.onDestroy();
+    }
+
+    public boolean isConnected(String address){
+        GattConnection connection = address == null ? null : connections.get(address);
+        return connection != null && connection.connected;
+    }
+
+    // one of the STATE_ constants, STATE_DISCONNECTED for a device the service does not manage
+    public int getState(String address) {
+        GattConnection connection = address == null ? null : connections.get(address);
+        return connection == null ? STATE_DISCONNECTED : connection.state;
+    }
+
+    // milliseconds the last reconnection of a device took to get back to streaming, -1 if none
+    public long getLastRecoveryMillis(String address) {
+        GattConnection connection = address == null ? null : connections.get(address);
+        return connection == null ? -1 : connection.last_recovery_ms;
+    }
+
+    /**Selects the LinkProfile of a connection. It is applied once services have been
+     * discovered, right away if that has already happened, and again after every
+     * reconnection. GATT_LINK_CHANGED reports what was applied and the negotiated MTU.*/
+    public boolean setLinkProfile(String address, int profile) {
+        GattConnection connection = address == null ? null : connections.get(address);
+        if (connection == null) {
+            sendConsoleMessage(address, "setLinkProfile: not connected");
+            return false;
+        }
+        connection.link_profile = profile;
+        int state = connection.state;
+        if (state == STATE_SUBSCRIBING || state == STATE_STREAMING) {
+            applyLinkProfile(connection);
+        }
+        return true;
     }
 
-    public boolean isConnected(){
-        return connected;
+    public int getLinkProfile(String address) {
+        GattConnection connection = address == null ? null : connections.get(address);
+        return connection == null ? LinkProfile.BALANCED : connection.link_profile;
+    }
+
+    public int getMtu(String address) {
+        GattConnection connection = address == null ? null : connections.get(address);
+        return connection == null ? LinkProfile.DEFAULT_MTU : connection.mtu;
+    }
+
+    // milliseconds from connecting to the first notification or indication, -1 if none yet
+    public long getConnectToFirstReadingMillis(String address) {
+        GattConnection connection = address == null ? null : connections.get(address);
+        return connection == null ? -1 : connection.first_reading_ms;
+    }
+
+    // addresses of the devices currently connected
+    public List<String> getConnectedDevices() {
+        List<String> addresses = new ArrayList<>();
+        for (GattConnection connection : connections.values()) {
+            if (connection.connected) {
+                addresses.add(connection.address);
+            }
+        }
+        return addresses;
     }
 
     /**
@@ -100,81 +224,543 @@ public class BleAdapterService extends Service {
         return super.onUnbind(intent);
     }
 
-    //allow an Activity to register the Handler object it will expect events messages to be communicated via
-    // set activity that will receive the messages
-    public void setActivityHandler(Handler handler) {
-        activity_handler = handler;
+    //allow an Activity to register the Handler object it will expect events messages to be communicated via.
+    // Several activities may be registered at once, each gets every message
+    public void addActivityHandler(Handler handler) {
+        if (!activity_handlers.contains(handler)) {
+            activity_handlers.add(handler);
+        }
+    }
+
+    public void removeActivityHandler(Handler handler) {
+        activity_handlers.remove(handler);
+    }
+
+    /**Registers a consumer of the notifications and indications of one device, or of every
+     * device if address is null. It is called on handler's thread with the delivery policy
+     * of ReadingSubscription; sample_hz is only used by ReadingSubscription.SAMPLED.
+     * Each subscription is buffered separately, so a slow screen never holds back storage
+     * or alarm consumers.*/
+    public ReadingSubscription subscribe(String address, int policy, int sample_hz, Handler handler,
+                                         ReadingRingBuffer.Consumer consumer) {
+        ReadingSubscription subscription = new ReadingSubscription(handler, policy, sample_hz, address, consumer);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public void unsubscribe(ReadingSubscription subscription) {
+        subscription.cancel();
+        subscriptions.remove(subscription);
     }
 
     //Allow the service to send text messages to the activity, which we’ll display on the screen
     private void sendConsoleMessage(String text) {
-        Message msg = Message.obtain(activity_handler, MESSAGE);
+        sendConsoleMessage(null, text);
+    }
+
+    private void sendConsoleMessage(String address, String text) {
         Bundle data = new Bundle();
         data.putString(PARCEL_TEXT, text);
-        msg.setData(data);
-        msg.sendToTarget();
+        sendMessage(MESSAGE, address, data);
+    }
+
+    //every event is tagged with the device it comes from
+    private void sendMessage(int what, String address, Bundle data) {
+        if (data == null) {
+            data = new Bundle();
+        }
+        if (address != null) {
+            data.putString(PARCEL_DEVICE_ADDRESS, address);
+        }
+        for (Handler handler : activity_handlers) {
+            Message msg = Message.obtain(handler, what);
+            msg.setData(data);
+            msg.sendToTarget();
+        }
+    }
+
+    private void setState(GattConnection connection, int state) {
+        if (connection.state == state) {
+            return;
+        }
+        connection.state = state;
+        Log.d(Constants.TAG, connection.address + " " + STATE_NAMES[state]);
+        Bundle bundle = new Bundle();
+        bundle.putInt(PARCEL_STATE, state);
+        if (state == STATE_STREAMING && connection.lost_at_ms >= 0) {
+            connection.last_recovery_ms = SystemClock.elapsedRealtime() - connection.lost_at_ms;
+            connection.lost_at_ms = -1;
+            Log.d(Constants.TAG, connection.address + " recovered in " + connection.last_recovery_ms + "ms");
+            bundle.putLong(PARCEL_RECOVERY_MS, connection.last_recovery_ms);
+        }
+        sendMessage(GATT_STATE_CHANGED, connection.address, bundle);
+    }
+
+    private GattConnection connectedGatt(String address, String caller) {
+        GattConnection connection = address == null ? null : connections.get(address);
+        if (bluetooth_adapter == null || connection == null || connection.gatt == null) {
+            sendConsoleMessage(address, caller + ": bluetooth_adapter|bluetooth_gatt null");
+            return null;
+        }
+        return connection;
     }
 
     /**
      * Clicking the CONNECT button must cause a Bluetooth connection to be established between
      * the smartphone and the selected peripheral device
      *
-     * Bluetooth operations are all asynchronous (after initiating an operation, our code will not block)*/
+     * Bluetooth operations are all asynchronous (after initiating an operation, our code will not block)
+     *
+     * Each device gets its own connection, so connecting to a second device leaves the first one alone.*/
     public boolean connect(final String address){
+        return connect(address, true);
+    }
+
+    /**With auto_reconnect, a link lost without disconnect() being called is re-established
+     * on its own: a few direct attempts with growing, jittered delays, then an autoConnect
+     * attempt which the stack keeps pending until the device is back in range. Once services
+     * are rediscovered, the indications that were on are switched on again.*/
+    public boolean connect(final String address, boolean auto_reconnect){
         if (bluetooth_adapter == null || address == null) {
             sendConsoleMessage("connect: bluetooth_adapter=null");
             return false;
         }
+        GattConnection existing = connections.get(address);
+        if (existing != null && existing.gatt != null) {
+            sendConsoleMessage(address, "connect: already connected or connecting");
+            return true;
+        }
+        if (existing != null) {
+            // waiting to reconnect, the user does not want to wait
+            timeout_handler.removeCallbacks(existing.reconnect);
+            existing.auto_reconnect = auto_reconnect;
+            existing.attempt = 0;
+            openGatt(existing, false);
+            return true;
+        }
 
-        device = bluetooth_adapter.getRemoteDevice(address);
+        BluetoothDevice device = bluetooth_adapter.getRemoteDevice(address);
         if (device == null){
-            sendConsoleMessage("connect: device=null");
+            sendConsoleMessage(address, "connect: device=null");
             return false;
         }
-        bluetooth_gatt = device.connectGatt(this, false, gatt_callback);
+        final GattConnection connection = new GattConnection(address, device,
+                new GattOperationQueue(timeout_handler, null));
+        connection.operation_queue.setListener(new GattOperationQueue.Listener() {
+            @Override
+            public void onOperationFailed(GattOperation operation, String reason) {
+                sendConsoleMessage(address, operation + " " + reason);
+                if (operation.type == GattOperation.WRITE_DESCRIPTOR) {
+                    onArmed(connection, operation);
+                }
+            }
+        });
+        connection.reconnect = new Runnable() {
+            @Override
+            public void run() {
+                if (connections.get(address) == connection && connection.gatt == null
+                        && !connection.disconnect_requested) {
+                    openGatt(connection, connection.useAutoConnect());
+                }
+            }
+        };
+        connection.auto_reconnect = auto_reconnect;
+        connections.put(address, connection);
+        openGatt(connection, false);
         return true;
     }
 
-    // disconnect from device
-    public void disconnect() {
-        sendConsoleMessage("disconnecting");
-        if (bluetooth_adapter == null || bluetooth_gatt == null) {
-            sendConsoleMessage("disconnect: bluetooth_adapter|bluetooth_gatt null");
+    private void openGatt(GattConnection connection, boolean auto_connect) {
+        Log.d(Constants.TAG, "connectGatt " + connection.address + " autoConnect=" + auto_connect
+                + " attempt=" + connection.attempt);
+        setState(connection, STATE_CONNECTING);
+        connection.opened_nanos = System.nanoTime();
+        connection.gatt = connection.device.connectGatt(this, auto_connect, new ConnectionCallback(connection));
+    }
+
+    // the link is gone for good, tell the activity and forget the device
+    private void finish(GattConnection connection) {
+        failAll(connection.connect_futures, new GattException("disconnected"));
+        setState(connection, STATE_DISCONNECTED);
+        sendMessage(GATT_DISCONNECT, connection.address, null);
+        if (rssi_scheduler != null) {
+            rssi_scheduler.stop(connection.address);
+        }
+        // a newer connection to the same device may already have taken its place
+        connections.remove(connection.address, connection);
+    }
+
+    // disconnect from device, this also stops any reconnection
+    public void disconnect(String address) {
+        sendConsoleMessage(address, "disconnecting");
+        GattConnection connection = address == null ? null : connections.get(address);
+        if (connection == null) {
+            sendConsoleMessage(address, "disconnect: not connected");
             return;
         }
-        if (bluetooth_gatt != null) {
-            bluetooth_gatt.disconnect();
+        connection.disconnect_requested = true;
+        timeout_handler.removeCallbacks(connection.reconnect);
+        synchronized (connection) {
+            connection.armed.clear();
+        }
+        BluetoothGatt gatt = connection.gatt;
+        if (gatt != null && connection.connected) {
+            gatt.disconnect();
+            return;
+        }
+        // still connecting or waiting to reconnect, there is no link to take down
+        if (gatt != null) {
+            connection.gatt = null;
+            gatt.close();
+        }
+        finish(connection);
+    }
+
+    // queues the priority of the connection's profile and, the first time it is needed, its MTU
+    private void applyLinkProfile(GattConnection connection) {
+        int profile = connection.link_profile;
+        connection.operation_queue.enqueue(
+                GattOperation.requestConnectionPriority(LinkProfile.connectionPriority(profile)));
+        int mtu = LinkProfile.mtu(profile);
+        boolean request_mtu = false;
+        synchronized (connection) {
+            if (mtu > connection.mtu && !connection.mtu_requested) {
+                // ATT only allows one exchange per connection
+                connection.mtu_requested = true;
+                request_mtu = true;
+            }
+        }
+        // never queue while holding the connection, the queue's callbacks lock it too
+        if (request_mtu) {
+            connection.operation_queue.enqueue(GattOperation.requestMtu(mtu));
+        }
+        sendLinkChanged(connection);
+    }
+
+    private void sendLinkChanged(GattConnection connection) {
+        Bundle bundle = new Bundle();
+        bundle.putInt(PARCEL_LINK_PROFILE, connection.link_profile);
+        bundle.putInt(PARCEL_MTU, connection.mtu);
+        sendMessage(GATT_LINK_CHANGED, connection.address, bundle);
+    }
+
+    private static byte[] configValue(int mode) {
+        return mode == SUBSCRIBE_NOTIFICATIONS
+                ? BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE
+                : BluetoothGattDescriptor.ENABLE_INDICATION_VALUE;
+    }
+
+    // switches the notifications and indications that were on before the link was lost back on
+    private void armIndications(GattConnection connection) {
+        List<GattOperation> writes = new ArrayList<>();
+        synchronized (connection) {
+            for (GattConnection.Armed armed : connection.armed) {
+                GattHandle handle = connection.handles.get(armed.handle.service_uuid, armed.handle.characteristic_uuid);
+                if (handle == null || handle.config == null) {
+                    continue;
+                }
+                armed.handle = handle;
+                connection.gatt.setCharacteristicNotification(handle.characteristic, true);
+                writes.add(GattOperation.writeDescriptor(handle.config, configValue(armed.mode)));
+            }
+            connection.arming.clear();
+            connection.arming.addAll(writes);
+        }
+        // in STATE_SUBSCRIBING before the first write can finish, and queued without holding
+        // the connection, the queue reports failures back through onArmed()
+        setState(connection, writes.isEmpty() ? STATE_STREAMING : STATE_SUBSCRIBING);
+        for (GattOperation write : writes) {
+            connection.operation_queue.enqueue(write);
+        }
+    }
+
+    // a descriptor write finished or failed, only those armIndications() queued count
+    private void onArmed(GattConnection connection, GattOperation operation) {
+        boolean done;
+        synchronized (connection) {
+            if (connection.state != STATE_SUBSCRIBING || !connection.arming.remove(operation)) {
+                return;
+            }
+            done = connection.arming.isEmpty();
+        }
+        if (done) {
+            setState(connection, STATE_STREAMING);
+        }
+    }
+
+    // hands the result of a finished operation to whoever waits for it
+    private static void completeOperation(GattOperation operation, int status, Object value) {
+        if (operation == null || operation.future == null) {
+            return;
+        }
+        if (status == BluetoothGatt.GATT_SUCCESS) {
+            operation.future.completeUnchecked(value);
+        } else {
+            operation.future.fail(new GattException(operation.toString(), status));
+        }
+    }
+
+    private static <T> void completeAll(List<GattFuture<T>> futures, T value) {
+        List<GattFuture<T>> waiting;
+        synchronized (futures) {
+            waiting = new ArrayList<>(futures);
+            futures.clear();
+        }
+        for (GattFuture<T> future : waiting) {
+            future.complete(value);
+        }
+    }
+
+    private static <T> void failAll(List<GattFuture<T>> futures, Throwable failure) {
+        List<GattFuture<T>> waiting;
+        synchronized (futures) {
+            waiting = new ArrayList<>(futures);
+            futures.clear();
+        }
+        for (GattFuture<T> future : waiting) {
+            future.fail(failure);
+        }
+    }
+
+    // queues an operation and returns the future completed by its callback
+    private <T> GattFuture<T> enqueue(GattConnection connection, GattOperation operation) {
+        GattFuture<T> future = new GattFuture<>(timeout_handler);
+        operation.future = future;
+        connection.operation_queue.enqueue(operation);
+        return future;
+    }
+
+    private <T> GattFuture<T> failed(String message) {
+        return GattFuture.failed(timeout_handler, new GattException(message));
+    }
+
+    /**
+     * FUTURE BASED API
+     * Same requests as the methods above and below, but the result comes back as a GattFuture
+     * completed from the BluetoothGattCallback instead of a message to correlate by hand.
+     * Chain them with GattFuture.then(), wait for several with GattFuture.all() and bound
+     * them with GattFuture.withTimeout(). Requests that cannot even be made return a future
+     * that has already failed.
+     * */
+
+    // completes with the address once the link is up, including after a reconnection
+    public GattFuture<String> connectAsync(String address) {
+        GattConnection connection = address == null ? null : connections.get(address);
+        if (connection != null && connection.connected) {
+            return GattFuture.completed(timeout_handler, address);
+        }
+        GattFuture<String> future = new GattFuture<>(timeout_handler);
+        if (connection == null) {
+            if (!connect(address)) {
+                return failed("connect " + address + " failed");
+            }
+            connection = connections.get(address);
+        }
+        synchronized (connection.connect_futures) {
+            connection.connect_futures.add(future);
+        }
+        if (connection.connected) {
+            // came up while the future was being registered
+            completeAll(connection.connect_futures, address);
+        }
+        return future;
+    }
+
+    // completes with the services of the device, discovering them unless that is already done
+    public GattFuture<List<BluetoothGattService>> discoverServicesAsync(String address) {
+        GattConnection connection = connectedGatt(address, "discoverServices");
+        if (connection == null || !connection.connected) {
+            return failed("discoverServices " + address + ": not connected");
+        }
+        if (connection.services_discovered) {
+            return GattFuture.completed(timeout_handler, connection.gatt.getServices());
+        }
+        GattFuture<List<BluetoothGattService>> future = new GattFuture<>(timeout_handler);
+        synchronized (connection.discover_futures) {
+            connection.discover_futures.add(future);
+        }
+        if (connection.state != STATE_DISCOVERING) {
+            connection.gatt.discoverServices();
+        }
+        return future;
+    }
+
+    // completes with a copy of the value read
+    public GattFuture<byte[]> readCharacteristicAsync(GattHandle handle) {
+        GattConnection connection = connectionOf(handle, "readCharacteristic");
+        if (connection == null) {
+            return failed("read " + handle + ": not connected");
+        }
+        return enqueue(connection, GattOperation.readCharacteristic(handle.characteristic));
+    }
+
+    public GattFuture<Void> writeCharacteristicAsync(GattHandle handle, byte[] value) {
+        GattConnection connection = connectionOf(handle, "writeCharacteristic");
+        if (connection == null) {
+            return failed("write " + handle + ": not connected");
         }
+        return enqueue(connection, GattOperation.writeCharacteristic(handle.characteristic, value));
     }
 
-    private final BluetoothGattCallback gatt_callback = new BluetoothGattCallback() {
+    // completes once the device has accepted the CCCD write
+    public GattFuture<Void> setSubscriptionStateAsync(GattHandle handle, int mode, boolean enabled) {
+        GattConnection connection = connectionOf(handle, "setSubscriptionState");
+        if (connection == null) {
+            return failed("subscribe " + handle + ": not connected");
+        }
+        GattOperation operation = subscriptionOperation(connection, handle, mode, enabled);
+        if (operation == null) {
+            return failed("subscribe " + handle + ": not supported");
+        }
+        return enqueue(connection, operation);
+    }
+
+    /**Reads several characteristics of a device, given as {service UUID, characteristic UUID}
+     * pairs. The reads are queued together, so each one goes out as soon as the previous
+     * answer is in, and the future completes once with every value, or with the error of
+     * each item that could not be read, and the time the whole batch took.*/
+    public GattFuture<GattBatchRead> readBatchAsync(String address, String[][] characteristics) {
+        GattConnection connection = address == null ? null : connections.get(address);
+        UUID[] uuids = new UUID[characteristics.length];
+        GattHandle[] handles = new GattHandle[characteristics.length];
+        int found = 0;
+        for (int i = 0; i < characteristics.length; i++) {
+            uuids[i] = UUID.fromString(characteristics[i][1]);
+            if (connection != null) {
+                handles[i] = connection.handles.get(UUID.fromString(characteristics[i][0]), uuids[i]);
+            }
+            if (handles[i] != null) {
+                found++;
+            }
+        }
+        final GattBatchRead batch = new GattBatchRead(address, uuids);
+        final GattFuture<GattBatchRead> result = new GattFuture<>(timeout_handler);
+        final int[] remaining = {found};
+        for (int i = 0; i < characteristics.length; i++) {
+            if (handles[i] == null) {
+                batch.set(i, null, GattBatchRead.NOT_FOUND);
+                continue;
+            }
+            final int index = i;
+            readCharacteristicAsync(handles[i]).addCallback(new GattFuture.Callback<byte[]>() {
+                @Override
+                public void onComplete(GattFuture<byte[]> future) {
+                    Throwable failure = future.failure();
+                    if (failure == null) {
+                        batch.set(index, valueOf(future), BluetoothGatt.GATT_SUCCESS);
+                    } else {
+                        batch.set(index, null, failure instanceof GattException
+                                ? ((GattException) failure).getStatus() : GattBatchRead.NOT_READ);
+                    }
+                    synchronized (remaining) {
+                        if (--remaining[0] > 0) {
+                            return;
+                        }
+                    }
+                    batch.finished();
+                    result.complete(batch);
+                }
+            }, null);
+        }
+        if (found == 0) {
+            batch.finished();
+            result.complete(batch);
+        }
+        return result;
+    }
+
+    // value of a future known to have succeeded
+    private static byte[] valueOf(GattFuture<byte[]> future) {
+        try {
+            return future.get();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public GattFuture<Integer> readRemoteRssiAsync(String address) {
+        GattConnection connection = address == null ? null : connections.get(address);
+        if (bluetooth_adapter == null || connection == null || connection.gatt == null) {
+            return failed("read rssi " + address + ": not connected");
+        }
+        // a read already on its way answers this request too
+        GattOperation queued = connection.operation_queue.find(GattOperation.READ_REMOTE_RSSI);
+        if (queued != null && queued.future != null) {
+            @SuppressWarnings("unchecked")
+            GattFuture<Integer> future = (GattFuture<Integer>) queued.future;
+            return future;
+        }
+        return enqueue(connection, GattOperation.readRemoteRssi());
+    }
+
+    /**Each connection has its own callback object, so every event can be attributed to the
+     * device it comes from*/
+    private class ConnectionCallback extends BluetoothGattCallback {
+        private final GattConnection connection;
+
+        ConnectionCallback(GattConnection connection) {
+            this.connection = connection;
+        }
+
         @Override
         public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
-            Log.d(Constants.TAG, "onConnectionStateChange: status=" + status);
+            Log.d(Constants.TAG, "onConnectionStateChange: " + connection.address + " status=" + status);
             if (newState == BluetoothProfile.STATE_CONNECTED) {
                 Log.d(Constants.TAG, "onConnectionStateChange: CONNECTED");
-                connected = true;
-                Message msg = Message.obtain(activity_handler, GATT_CONNECTED);
-                msg.sendToTarget();
+                connection.connected = true;
+                connection.attempt = 0;
+                synchronized (connection) {
+                    connection.mtu = LinkProfile.DEFAULT_MTU;
+                    connection.mtu_requested = false;
+                }
+                connection.operation_queue.setGatt(gatt);
+                sendMessage(GATT_CONNECTED, connection.address, null);
+                completeAll(connection.connect_futures, connection.address);
+                setState(connection, STATE_DISCOVERING);
+                gatt.discoverServices();
             }
             else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
                 Log.d(Constants.TAG, "onConnectionStateChange: DISCONNECTED");
-                connected = false;
-                Message msg = Message.obtain(activity_handler, GATT_DISCONNECT);
-                msg.sendToTarget();
-                if (bluetooth_gatt != null) {
-                    Log.d(Constants.TAG,"Closing and destroying BluetoothGatt object");
-                    bluetooth_gatt.close();
-                    bluetooth_gatt = null;
+                connection.connected = false;
+                connection.operation_queue.clear();
+                connection.handles.clear();
+                connection.services_discovered = false;
+                failAll(connection.discover_futures, new GattException("disconnected", status));
+                Log.d(Constants.TAG,"Closing and destroying BluetoothGatt object");
+                gatt.close();
+                connection.gatt = null;
+                if (connection.disconnect_requested || !connection.auto_reconnect) {
+                    finish(connection);
+                    return;
                 }
+                // lost the link, try again after a while
+                if (connection.lost_at_ms < 0) {
+                    connection.lost_at_ms = SystemClock.elapsedRealtime();
+                }
+                long delay = connection.nextBackoffMillis(backoff_random);
+                sendConsoleMessage(connection.address, "link lost, reconnecting in " + delay + "ms");
+                setState(connection, STATE_BACKOFF);
+                timeout_handler.postDelayed(connection.reconnect, delay);
             }
         }
 
         @Override
         public void onServicesDiscovered(BluetoothGatt gatt, int status) {
-            sendConsoleMessage("Services Discovered");
-            Message msg = Message.obtain(activity_handler, GATT_SERVICES_DISCOVERED);
-            msg.sendToTarget();
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                // resolve every characteristic once, requests then go straight to the handles
+                connection.handles.fill(gatt.getServices());
+                connection.services_discovered = true;
+                completeAll(connection.discover_futures, gatt.getServices());
+            } else {
+                failAll(connection.discover_futures, new GattException("service discovery failed", status));
+            }
+            sendConsoleMessage(connection.address, "Services Discovered");
+            sendMessage(GATT_SERVICES_DISCOVERED, connection.address, null);
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                // queued ahead of the CCCD writes, so re-armed indications already use the new link
+                applyLinkProfile(connection);
+                armIndications(connection);
+            }
         }
 
         /**These methods will be called when Bluetooth read and write procedures have completed
@@ -186,13 +772,15 @@ public class BleAdapterService extends Service {
                 bundle.putString(PARCEL_CHARACTERISTIC_UUID, characteristic.getUuid().toString());
                 bundle.putString(PARCEL_SERVICE_UUID, characteristic.getService().getUuid().toString());
                 bundle.putByteArray(PARCEL_VALUE, characteristic.getValue());
-                Message msg = Message.obtain(activity_handler, GATT_CHARACTERISTIC_READ);
-                msg.setData(bundle);
-                msg.sendToTarget();
+                sendMessage(GATT_CHARACTERISTIC_READ, connection.address, bundle);
             } else {
                 Log.d(Constants.TAG, "failed to read characteristic: "+characteristic.getUuid().toString()+" of service "+characteristic.getService().getUuid().toString()+" : status="+status);
-                sendConsoleMessage("characteristic read err: "+status);
+                sendConsoleMessage(connection.address, "characteristic read err: "+status);
             }
+            // only now, the value has been copied and the next operation may reuse the characteristic
+            byte[] value = characteristic.getValue();
+            completeOperation(connection.operation_queue.complete(GattOperation.READ_CHARACTERISTIC, characteristic),
+                    status, value == null ? null : value.clone());
         }
 
         public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
@@ -202,44 +790,74 @@ public class BleAdapterService extends Service {
                 bundle.putString(PARCEL_CHARACTERISTIC_UUID, characteristic.getUuid().toString());
                 bundle.putString(PARCEL_SERVICE_UUID, characteristic.getService().getUuid().toString());
                 bundle.putByteArray(PARCEL_VALUE, characteristic.getValue());
-                Message msg = Message.obtain(activity_handler, GATT_CHARACTERISTIC_WRITTEN);
-                msg.setData(bundle);
-                msg.sendToTarget();
+                sendMessage(GATT_CHARACTERISTIC_WRITTEN, connection.address, bundle);
             } else {
-                sendConsoleMessage("characteristic write err:" + status);
+                sendConsoleMessage(connection.address, "characteristic write err:" + status);
             }
+            completeOperation(connection.operation_queue.complete(GattOperation.WRITE_CHARACTERISTIC, characteristic), status, null);
+        }
+
+        @Override
+        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
+            if (status != BluetoothGatt.GATT_SUCCESS) {
+                sendConsoleMessage(connection.address, "descriptor write err:" + status);
+            }
+            GattOperation operation = connection.operation_queue.complete(GattOperation.WRITE_DESCRIPTOR, descriptor);
+            completeOperation(operation, status, null);
+            onArmed(connection, operation);
         }
 
         /**Invoked by the system when a notification or indication message is received over
          * the Bluetooth connection from the remote device.
-         * We’ll pass whatever we receive to our PeripheralControlActivity class via the Handler*/
+         * The value is handed to every subscription, each buffers it according to its own
+         * delivery policy, see subscribe()*/
 
         @Override
         public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
-            Bundle bundle = new Bundle();
-            bundle.putString(PARCEL_CHARACTERISTIC_UUID, characteristic.getUuid().toString());
-            bundle.putString(PARCEL_SERVICE_UUID, characteristic.getService().getUuid().toString());
-            bundle.putByteArray(PARCEL_VALUE, characteristic.getValue());
             // notifications and indications are both communicated from here in this way
-            Message msg = Message.obtain(activity_handler, NOTIFICATION_OR_INDICATION_RECEIVED);
-            msg.setData(bundle);
-            msg.sendToTarget();
+            int characteristic_id = connection.handles.idOf(characteristic);
+            byte[] value = characteristic.getValue();
+            long now = System.nanoTime();
+            if (connection.opened_nanos != 0) {
+                // connect-to-first-reading, how long a (re)connection keeps the readings waiting
+                connection.first_reading_ms = (now - connection.opened_nanos) / 1000000;
+                connection.opened_nanos = 0;
+                Log.d(Constants.TAG, connection.address + " first reading " + connection.first_reading_ms
+                        + "ms after connecting");
+            }
+            for (ReadingSubscription subscription : subscriptions) {
+                subscription.publish(connection.address, characteristic_id, value, now);
+            }
+            if (rssi_scheduler != null) {
+                rssi_scheduler.onReading(connection.address);
+            }
+        }
+
+        @Override
+        public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                connection.mtu = mtu;
+                sendConsoleMessage(connection.address, "MTU " + mtu);
+                sendLinkChanged(connection);
+            } else {
+                sendConsoleMessage(connection.address, "MTU request err:" + status);
+            }
+            completeOperation(connection.operation_queue.complete(GattOperation.REQUEST_MTU, null), status, mtu);
         }
 
         @Override
         public void onReadRemoteRssi(BluetoothGatt gatt, int rssi, int status) {
             if (status == BluetoothGatt.GATT_SUCCESS) {
-                sendConsoleMessage("RSSI read OK " + rssi);
+                sendConsoleMessage(connection.address, "RSSI read OK " + rssi);
                 Bundle bundle = new Bundle();
                 bundle.putInt(PARCEL_RSSI, rssi);
-                Message msg = Message.obtain(activity_handler, GATT_REMOTE_RSSI);
-                msg.setData(bundle);
-                msg.sendToTarget();
+                sendMessage(GATT_REMOTE_RSSI, connection.address, bundle);
             } else {
-                sendConsoleMessage("RSSI read err:"+status);
+                sendConsoleMessage(connection.address, "RSSI read err:"+status);
             }
+            completeOperation(connection.operation_queue.complete(GattOperation.READ_REMOTE_RSSI, null), status, rssi);
         }
-    };
+    }
 
     /**
      * SERVICE DISCOVERY
@@ -250,66 +868,85 @@ public class BleAdapterService extends Service {
      *
      * The same pattern applies for reading and writing to characteristics
      * */
-    public void discoverServices() {
-        if (bluetooth_adapter == null || bluetooth_gatt == null) {
+    public void discoverServices(String address) {
+        GattConnection connection = connectedGatt(address, "discoverServices");
+        if (connection == null) {
             return;
         }
-        Log.d(Constants.TAG,"Discovering GATT services");
-        bluetooth_gatt.discoverServices();
+        Log.d(Constants.TAG,"Discovering GATT services of " + address);
+        connection.gatt.discoverServices();
     }
 
-    public List<BluetoothGattService> getSupportedGattServices() {
-        if (bluetooth_gatt == null)
+    public List<BluetoothGattService> getSupportedGattServices(String address) {
+        GattConnection connection = address == null ? null : connections.get(address);
+        if (connection == null || connection.gatt == null)
             return null;
-        return bluetooth_gatt.getServices();
+        return connection.gatt.getServices();
     }
 
-    /**These are the public methods which the Activity will call to initiate reading from
-     * or writing to a characteristic, specified using a service UUID and a characteristic UUID.*/
-    public boolean readCharacteristic(String serviceUuid, String characteristicUuid) {
-        Log.d(Constants.TAG,"readCharacteristic: " + characteristicUuid + " of service " + serviceUuid);
-        if (bluetooth_adapter == null || bluetooth_gatt == null) {
-            sendConsoleMessage("readCharacteristic: bluetooth_adapter|bluetooth_gatt null");
-            return false;
-        }
-        BluetoothGattService gattService = bluetooth_gatt.getService(java.util.UUID.fromString(serviceUuid));
-        if (gattService == null) {
-            sendConsoleMessage("readCharacteristic: gattService null");
-            return false;
-        }
-        BluetoothGattCharacteristic gattChar = gattService.getCharacteristic(java.util.UUID.fromString(characteristicUuid));
-        if (gattChar == null) {
-            sendConsoleMessage("readCharacteristic: gattChar null");
-            return false;
+    /**Resolves a characteristic of a connected device once services have been discovered,
+     * null if the device has no such characteristic. Keep the handle and use the methods
+     * taking one for repeated requests, they skip the UUID parsing and service lookup.*/
+    public GattHandle getHandle(String address, String serviceUuid, String characteristicUuid) {
+        GattConnection connection = address == null ? null : connections.get(address);
+        if (connection == null) {
+            return null;
         }
-        return bluetooth_gatt.readCharacteristic(gattChar);
+        return connection.handles.get(UUID.fromString(serviceUuid), UUID.fromString(characteristicUuid));
     }
 
-    public boolean writeCharacteristic(String serviceUuid, String characteristicUuid, byte[] value) {
-        Log.d(Constants.TAG,"writeCharacteristic:"+characteristicUuid+" of service " +serviceUuid);
-        if (bluetooth_adapter == null || bluetooth_gatt == null) {
-            sendConsoleMessage("writeCharacteristic: bluetooth_adapter|bluetooth_gatt null");
-            return false;
+    // the connection a handle belongs to, null if the handle is stale
+    private GattConnection connectionOf(GattHandle handle, String caller) {
+        GattConnection connection = connectedGatt(handle.address, caller);
+        if (connection == null) {
+            return null;
         }
-        BluetoothGattService gattService = bluetooth_gatt.getService(java.util.UUID.fromString(serviceUuid));
-        if (gattService == null) {
-            sendConsoleMessage("writeCharacteristic: gattService null");
-            return false;
+        if (!connection.handles.isCurrent(handle)) {
+            sendConsoleMessage(handle.address, caller + ": stale handle " + handle);
+            return null;
         }
-        BluetoothGattCharacteristic gattChar = gattService.getCharacteristic(java.util.UUID.fromString(characteristicUuid));
-        if (gattChar == null) {
-            sendConsoleMessage("writeCharacteristic: gattChar null");
-            return false;
+        return connection;
+    }
+
+    private GattHandle resolve(String address, String serviceUuid, String characteristicUuid, String caller) {
+        GattHandle handle = getHandle(address, serviceUuid, characteristicUuid);
+        if (handle == null) {
+            sendConsoleMessage(address, caller + ": no characteristic " + characteristicUuid + " of service " + serviceUuid);
         }
-        gattChar.setValue(value);
-        return bluetooth_gatt.writeCharacteristic(gattChar);
+        return handle;
+    }
+
+    /**These are the public methods which the Activity will call to initiate reading from
+     * or writing to a characteristic, specified using a service UUID and a characteristic UUID
+     * or a handle obtained from getHandle().
+     *
+     * Requests are queued and sent one at a time (see GattOperationQueue), so they may be
+     * issued back-to-back. true means the request has been queued.*/
+    public boolean readCharacteristic(String address, String serviceUuid, String characteristicUuid) {
+        Log.d(Constants.TAG,"readCharacteristic: " + characteristicUuid + " of service " + serviceUuid);
+        GattHandle handle = resolve(address, serviceUuid, characteristicUuid, "readCharacteristic");
+        return handle != null && readCharacteristic(handle);
+    }
+
+    public boolean readCharacteristic(GattHandle handle) {
+        return readCharacteristicAsync(handle).failure() == null;
+    }
+
+    public boolean writeCharacteristic(String address, String serviceUuid, String characteristicUuid, byte[] value) {
+        Log.d(Constants.TAG,"writeCharacteristic:"+characteristicUuid+" of service " +serviceUuid);
+        GattHandle handle = resolve(address, serviceUuid, characteristicUuid, "writeCharacteristic");
+        return handle != null && writeCharacteristic(handle, value);
+    }
+
+    public boolean writeCharacteristic(GattHandle handle, byte[] value) {
+        return writeCharacteristicAsync(handle, value).failure() == null;
     }
 
     /**If the user switches temperature monitoring on, we need to subscribe to indications
      * from the Temperature Measurement characteristic
      *
      * Allows indications to be enabled or disabled for a specified characteristic belonging
-     * to a specified service.
+     * to a specified service. Characteristics that can only notify get notifications.
      *
      * This involves two primary Android API calls,
      * the first on the characteristic object (setCharacteristicNotification),
@@ -317,32 +954,58 @@ public class BleAdapterService extends Service {
      *
      * It is the latter step which impacts the remote device.*/
 
-    public boolean setIndicationsState(String serviceUuid, String characteristicUuid, boolean enabled) {
-        if (bluetooth_adapter == null || bluetooth_gatt == null) {
-            sendConsoleMessage("setIndicationsState: bluetooth_adapter|bluetooth_gatt null");
-            return false;
+    public boolean setIndicationsState(String address, String serviceUuid, String characteristicUuid, boolean enabled) {
+        GattHandle handle = resolve(address, serviceUuid, characteristicUuid, "setIndicationsState");
+        return handle != null && setIndicationsState(handle, enabled);
+    }
+
+    public boolean setIndicationsState(GattHandle handle, boolean enabled) {
+        int mode = !handle.canIndicate() && handle.canNotify() ? SUBSCRIBE_NOTIFICATIONS : SUBSCRIBE_INDICATIONS;
+        return setSubscriptionState(handle, mode, enabled);
+    }
+
+    /**Enables or disables notifications (SUBSCRIBE_NOTIFICATIONS) or indications
+     * (SUBSCRIBE_INDICATIONS) of a characteristic.
+     *
+     * Every indication waits for the phone's confirmation before the device may send the
+     * next one, so at most one arrives per connection interval, or less. Notifications are
+     * not confirmed and several fit in one connection event, so they suit high rate
+     * streaming; indications suit values that must not go missing unnoticed. The mode has to
+     * be one the characteristic supports, see GattHandle.canNotify() and canIndicate().*/
+    public boolean setSubscriptionState(GattHandle handle, int mode, boolean enabled) {
+        return setSubscriptionStateAsync(handle, mode, enabled).failure() == null;
+    }
+
+    // the CCCD write switching a subscription on or off, null if the mode is not supported
+    private GattOperation subscriptionOperation(GattConnection connection, GattHandle handle, int mode, boolean enabled) {
+        if (handle.config == null) {
+            sendConsoleMessage(handle.address, "setSubscriptionState: descriptor null");
+            return null;
         }
-        BluetoothGattService gattService = bluetooth_gatt.getService(java.util.UUID.fromString(serviceUuid));
-        if (gattService == null) {
-            sendConsoleMessage("setIndicationsState: gattService null");
-            return false;
+        if (enabled && !(mode == SUBSCRIBE_NOTIFICATIONS ? handle.canNotify() : handle.canIndicate())) {
+            sendConsoleMessage(handle.address, "setSubscriptionState: " + handle.characteristic_uuid + " cannot "
+                    + (mode == SUBSCRIBE_NOTIFICATIONS ? "notify" : "indicate"));
+            return null;
         }
-        BluetoothGattCharacteristic gattChar = gattService.getCharacteristic(java.util.UUID.fromString(characteristicUuid));
-        if (gattChar == null) {
-            sendConsoleMessage("setIndicationsState: gattChar null");
-            return false;
+        connection.gatt.setCharacteristicNotification(handle.characteristic, enabled);
+        // remembered, so they are switched back on after a reconnection
+        synchronized (connection) {
+            for (int i = connection.armed.size() - 1; i >= 0; i--) {
+                GattHandle armed = connection.armed.get(i).handle;
+                if (armed.characteristic_uuid.equals(handle.characteristic_uuid)
+                        && armed.service_uuid.equals(handle.service_uuid)) {
+                    connection.armed.remove(i);
+                }
+            }
+            if (enabled) {
+                connection.armed.add(new GattConnection.Armed(handle, mode));
+            }
         }
-        bluetooth_gatt.setCharacteristicNotification(gattChar, enabled);
 
-        // Enable remote notifications
-        descriptor = gattChar.getDescriptor(UUID.fromString(Constants.CLIENT_CHARACTERISTIC_CONFIG));
-        if (enabled) {
-            descriptor.setValue(BluetoothGattDescriptor.ENABLE_INDICATION_VALUE);
-        } else {
-            descriptor.setValue(BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE);
-        }
-        boolean ok = bluetooth_gatt.writeDescriptor(descriptor);
-        return ok;
+        // Enable remote notifications, the descriptor write goes through the operation queue
+        return GattOperation.writeDescriptor(handle.config, enabled
+                ? configValue(mode)
+                : BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE);
     }
     /**
      * We also need a callback method which will be invoked by the system when a notification
@@ -351,15 +1014,44 @@ public class BleAdapterService extends Service {
      * via the Handler.*/
 
     /**MONITORING SIGNAL STRENGTH*/
-    public void readRemoteRssi() {
-        if (bluetooth_adapter == null || bluetooth_gatt == null) {
+    public void readRemoteRssi(String address) {
+        GattConnection connection = address == null ? null : connections.get(address);
+        if (bluetooth_adapter == null || connection == null || connection.gatt == null) {
             Log.d(Constants.TAG, "readRemoteRssi: adapter or gatt == null");
             return;
         }
 
-        Log.d(Constants.TAG, "readRemoteRssi: ");
+        // one rssi request in the queue is enough, a slow link must not pile them up
+        if (connection.operation_queue.contains(GattOperation.READ_REMOTE_RSSI)) {
+            Log.d(Constants.TAG, "readRemoteRssi: already queued");
+            return;
+        }
+        Log.d(Constants.TAG, "readRemoteRssi: " + address);
         //will call the callback onReadRemoteRssi
-        bluetooth_gatt.readRemoteRssi();
+        connection.operation_queue.enqueue(GattOperation.readRemoteRssi());
+    }
+
+    /**Reads the RSSI of a device over and over until stopRssiSampling() or disconnect(), each
+     * value arriving as a GATT_REMOTE_RSSI message. One background thread samples every device,
+     * faster while the signal changes and slower while it is steady or the link is busy with
+     * readings, see RssiScheduler. Sampling pauses while the device is reconnecting.*/
+    public void startRssiSampling(String address) {
+        if (rssi_scheduler == null || address == null) {
+            Log.d(Constants.TAG, "startRssiSampling: adapter or address == null");
+            return;
+        }
+        rssi_scheduler.start(address);
+    }
+
+    public void stopRssiSampling(String address) {
+        if (rssi_scheduler != null && address != null) {
+            rssi_scheduler.stop(address);
+        }
+    }
+
+    // milliseconds between RSSI samples of a device right now, -1 if it is not sampled
+    public long getRssiIntervalMillis(String address) {
+        return rssi_scheduler == null || address == null ? -1 : rssi_scheduler.intervalMillis(address);
     }
 
 
@@ -10,10 +10,12 @@ import android.bluetooth.le.ScanSettings;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.bluetooth.bdsk.Constants;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,6 +28,37 @@ public class BleScanner {
     private boolean scanning = false;
     private String device_name_start = "";
 
+    // default schedule of startContinuousScanning(), 5s of fast discovery every 30s
+    public static final long DEFAULT_BURST_MS = 5000;
+    public static final long DEFAULT_LOW_POWER_MS = 25000;
+    // Android ignores the 6th scan start within 30s without telling, stay one below
+    static final int SCAN_STARTS_ALLOWED = 4;
+    static final long SCAN_START_WINDOW_MS = 30000;
+    // SystemClock.elapsedRealtime() of the recent scan starts, oldest first
+    private final ArrayDeque<Long> scan_starts = new ArrayDeque<>();
+    // ScanSettings mode of the scan running right now, -1 if none is
+    private int scan_mode = -1;
+    private long burst_ms;
+    private long low_power_ms;
+    // 0 to get every advertisement as it comes, see setReportDelay()
+    private long report_delay_ms = 0;
+
+    private final Runnable stop_scanning = new Runnable() {
+        @Override
+        public void run() {
+            if (scanning) {
+                stopScanning();
+            }
+        }
+    };
+
+    private final Runnable switch_mode = new Runnable() {
+        @Override
+        public void run() {
+            switchMode();
+        }
+    };
+
     /**
      * The constructor takes a Context object as an argument so that we can use it
      * to start an activity, which we need to do in the event that we find
@@ -61,38 +94,158 @@ public class BleScanner {
             return;
         }
         //this object will start the Bluetooth scanning process
+        if (!createScanner()) {
+            return;
+        }
+        this.scan_results_consumer = scan_results_consumer;
+        // a schedule of low latency only, the scan limit may still delay the start
+        this.burst_ms = stop_after_ms;
+        this.low_power_ms = 0;
+        long wait = startDelayMillis();
+        handler.postDelayed(stop_scanning, wait + stop_after_ms);
+        setScanning(true);
+        switchMode();
+    }
+
+    /**
+     * Scans until stopScanning(), alternating burst_ms of low latency scanning, to pick up new
+     * devices quickly, with low_power_ms of low power scanning, which still sees devices
+     * but keeps the radio mostly idle. Either may be 0 to stay in the other mode.
+     *
+     * Android cannot change the settings of a running scan, so every switch is a new scan
+     * start, and starting more than 5 scans in 30s gets an app's scans ignored. When a switch
+     * would go over that, the running scan is kept going in its current mode until a start
+     * is allowed again, so a too short schedule stretches rather than stops discovery.
+     */
+    public void startContinuousScanning(ScanResultsConsumer scan_results_consumer, long burst_ms, long low_power_ms) {
+        if (scanning) {
+            Log.d(Constants.TAG, "Already scanning so ignoring startContinuousScanning request");
+            return;
+        }
+        if (burst_ms <= 0 && low_power_ms <= 0) {
+            Log.d(Constants.TAG, "startContinuousScanning: empty schedule");
+            return;
+        }
+        if (!createScanner()) {
+            return;
+        }
+        this.scan_results_consumer = scan_results_consumer;
+        this.burst_ms = Math.max(0, burst_ms);
+        this.low_power_ms = Math.max(0, low_power_ms);
+        setScanning(true);
+        switchMode();
+    }
+
+    public void stopScanning() {
+        handler.removeCallbacks(stop_scanning);
+        handler.removeCallbacks(switch_mode);
+        Log.d(Constants.TAG, "Stopping scanning");
+        // ended while still scanning, so the results endScan() flushes are not dropped
+        if (scan_mode != -1) {
+            endScan();
+            scan_mode = -1;
+        }
+        setScanning(false);
+    }
+
+    /**
+     * Opt in to batched results: the controller collects advertisements for report_delay_ms
+     * and hands them over in one go, through ScanResultsConsumer.candidateBleDevices(), so
+     * a crowded room wakes the CPU once per batch instead of once per packet. 0 goes back to
+     * one candidateBleDevice() call per advertisement. Takes effect with the next scan start.
+     * Returns false, and leaves batching off, if the controller cannot batch.
+     */
+    public boolean setReportDelay(long report_delay_ms) {
+        if (report_delay_ms > 0 && (bluetooth_adapter == null || !bluetooth_adapter.isOffloadedScanBatchingSupported())) {
+            Log.d(Constants.TAG, "Scan batching not supported, results are reported one by one");
+            this.report_delay_ms = 0;
+            return false;
+        }
+        this.report_delay_ms = Math.max(0, report_delay_ms);
+        return true;
+    }
+
+    private boolean createScanner() {
         if (scanner == null) {
             scanner = bluetooth_adapter.getBluetoothLeScanner();
             Log.d(Constants.TAG, "Created BluetoothScanner object");
         }
-        handler.postDelayed(new Runnable() {
-            @Override
-            public void run() {
+        if (scanner == null) {
+            // bluetooth is off
+            Log.d(Constants.TAG, "No BluetoothLeScanner, is Bluetooth on?");
+            return false;
+        }
+        return true;
+    }
 
-                if (scanning) {
-                    Log.d(Constants.TAG, "Stopping scanning");
-                    scanner.stopScan(scan_callback);
-                    setScanning(false);
-                }
-            }
-        }, stop_after_ms);
-        this.scan_results_consumer = scan_results_consumer;
-        Log.d(Constants.TAG, "Scanning");
+    // moves on to the next part of the schedule of startContinuousScanning()
+    private void switchMode() {
+        if (!scanning) {
+            return;
+        }
+        int next;
+        if (low_power_ms == 0) {
+            next = ScanSettings.SCAN_MODE_LOW_LATENCY;
+        } else if (burst_ms == 0) {
+            next = ScanSettings.SCAN_MODE_LOW_POWER;
+        } else {
+            next = scan_mode == ScanSettings.SCAN_MODE_LOW_LATENCY
+                    ? ScanSettings.SCAN_MODE_LOW_POWER : ScanSettings.SCAN_MODE_LOW_LATENCY;
+        }
+        if (next == scan_mode) {
+            // a single mode schedule, nothing left to switch
+            return;
+        }
+        long wait = startDelayMillis();
+        if (wait > 0) {
+            // keep the running scan a little longer rather than have the next one ignored
+            Log.d(Constants.TAG, "Too many scan starts, switching scan mode in " + wait + "ms");
+            handler.postDelayed(switch_mode, wait);
+            return;
+        }
+        if (scan_mode != -1) {
+            endScan();
+        }
+        startScan(next);
+        handler.postDelayed(switch_mode, next == ScanSettings.SCAN_MODE_LOW_LATENCY ? burst_ms : low_power_ms);
+    }
+
+    private void startScan(int mode) {
+        Log.d(Constants.TAG, "Scanning, mode " + mode);
         List<ScanFilter> filters;
         filters = new ArrayList<ScanFilter>();
         ScanFilter filter = new ScanFilter.Builder().setDeviceName("Miji_Bluetooth01").build();
         filters.add(filter);
-        ScanSettings settings = new ScanSettings.Builder().setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY).build();
-        setScanning(true);
+        ScanSettings.Builder builder = new ScanSettings.Builder().setScanMode(mode);
+        if (report_delay_ms > 0) {
+            builder.setReportDelay(report_delay_ms);
+        }
+        ScanSettings settings = builder.build();
+        scan_starts.add(SystemClock.elapsedRealtime());
+        scan_mode = mode;
         scanner.startScan(filters, settings, scan_callback);
     }
 
-    public void stopScanning() {
-        setScanning(false);
-        Log.d(Constants.TAG, "Stopping scanning");
+    private void endScan() {
+        if (report_delay_ms > 0) {
+            // hand over what the controller collected so far rather than lose it
+            scanner.flushPendingScanResults(scan_callback);
+        }
         scanner.stopScan(scan_callback);
     }
 
+    // how long until another scan may be started, 0 if one may be started right away
+    private long startDelayMillis() {
+        long now = SystemClock.elapsedRealtime();
+        while (!scan_starts.isEmpty() && now - scan_starts.peek() >= SCAN_START_WINDOW_MS) {
+            scan_starts.poll();
+        }
+        if (scan_starts.size() < SCAN_STARTS_ALLOWED) {
+            return 0;
+        }
+        return scan_starts.peek() + SCAN_START_WINDOW_MS - now;
+    }
+
     /**
      * Inner class the BluetoothLeScanner needs.
      * This method is going to be called every time the scanner collects a Bluetooth advertising
@@ -114,6 +267,16 @@ public class BleScanner {
                     result.getScanRecord().getBytes(),
                     result.getRssi());
         }
+
+        // only with a report delay, see setReportDelay(). The batch flushed by endScan() may
+        // come in after the scan stopped, it was still collected while scanning so it is kept
+        @Override
+        public void onBatchScanResults(List<ScanResult> results) {
+            if (scan_results_consumer == null || results.isEmpty()) {
+                return;
+            }
+            scan_results_consumer.candidateBleDevices(results);
+        }
     };
 
     public boolean isScanning() {
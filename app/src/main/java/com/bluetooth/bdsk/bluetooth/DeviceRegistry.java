@@ -0,0 +1,210 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import android.bluetooth.BluetoothDevice;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Devices seen while scanning, keyed by address, with when they were last seen, how many
+ * of their advertisements came in and their smoothed RSSI.
+ *
+ * A scan reports every advertising packet, so with hundreds of advertisers around recording
+ * one has to be a hash lookup, not a search through a list. Devices not heard from for
+ * stale_ms are evicted. Rather than on every packet, the Listener is told what was added,
+ * updated and removed at most every PUBLISH_INTERVAL_MS, in one diff.
+ *
+ * Everything runs on the thread of the Handler given to the constructor, record() has to be
+ * called on it too. BluetoothLeScanner delivers its ScanCallback on the main looper, so with
+ * a main thread Handler the callback can record straight away.
+ */
+public final class DeviceRegistry {
+    public interface Listener {
+        // one batch of changes since the previous call, none of the lists is ever null
+        void onDevicesChanged(List<Entry> added, List<Entry> updated, List<Entry> removed);
+    }
+
+    public static final long DEFAULT_STALE_MS = 30000;
+    static final long PUBLISH_INTERVAL_MS = 500;
+    static final long EVICTION_INTERVAL_MS = 2000;
+    // weight of a new sample in the RSSI average
+    static final float RSSI_ALPHA = 0.25f;
+
+    // not published yet, see Entry.pending
+    private static final int PUBLISHED = 0;
+    private static final int ADDED = 1;
+    private static final int UPDATED = 2;
+
+    public static final class Entry {
+        public final BluetoothDevice device;
+        public final String address;
+        private long last_seen_ms;
+        private float rssi;
+        private int advertisements;
+        private int pending = ADDED;
+
+        Entry(BluetoothDevice device, int rssi, long now_ms) {
+            this.device = device;
+            this.address = device.getAddress();
+            this.rssi = rssi;
+            this.last_seen_ms = now_ms;
+            this.advertisements = 1;
+        }
+
+        // SystemClock.elapsedRealtime() of the last advertisement
+        public long lastSeenMillis() {
+            return last_seen_ms;
+        }
+
+        // exponentially weighted average of the advertisement RSSI, dBm
+        public float rssi() {
+            return rssi;
+        }
+
+        public int advertisements() {
+            return advertisements;
+        }
+    }
+
+    private final Handler handler;
+    private final Listener listener;
+    private final long stale_ms;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final List<Entry> added = new ArrayList<>();
+    private final List<Entry> updated = new ArrayList<>();
+    private final List<Entry> removed = new ArrayList<>();
+    private boolean running = false;
+    private boolean publish_posted = false;
+
+    private final Runnable publish = new Runnable() {
+        @Override
+        public void run() {
+            publish_posted = false;
+            publish();
+        }
+    };
+
+    private final Runnable evict = new Runnable() {
+        @Override
+        public void run() {
+            evictStale(SystemClock.elapsedRealtime());
+            handler.postDelayed(this, EVICTION_INTERVAL_MS);
+        }
+    };
+
+    public DeviceRegistry(Handler handler, long stale_ms, Listener listener) {
+        this.handler = handler;
+        this.stale_ms = stale_ms;
+        this.listener = listener;
+    }
+
+    // starts evicting, call when scanning starts
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        handler.postDelayed(evict, EVICTION_INTERVAL_MS);
+    }
+
+    // stops evicting, the devices are kept as they are, e.g. while not scanning
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(evict);
+    }
+
+    // an advertisement of device came in
+    public void record(BluetoothDevice device, int rssi) {
+        record(device, rssi, SystemClock.elapsedRealtime());
+    }
+
+    void record(BluetoothDevice device, int rssi, long now) {
+        Entry entry = entries.get(device.getAddress());
+        if (entry == null) {
+            entry = new Entry(device, rssi, now);
+            entries.put(entry.address, entry);
+            added.add(entry);
+        } else {
+            entry.last_seen_ms = now;
+            entry.rssi += RSSI_ALPHA * (rssi - entry.rssi);
+            entry.advertisements++;
+            if (entry.pending == PUBLISHED) {
+                entry.pending = UPDATED;
+                updated.add(entry);
+            }
+        }
+        schedulePublish();
+    }
+
+    public Entry get(String address) {
+        return entries.get(address);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // forgets every device without telling the listener, e.g. before a new scan
+    public void clear() {
+        entries.clear();
+        added.clear();
+        updated.clear();
+        removed.clear();
+        handler.removeCallbacks(publish);
+        publish_posted = false;
+    }
+
+    void evictStale(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (now - entry.last_seen_ms < stale_ms) {
+                continue;
+            }
+            iterator.remove();
+            if (entry.pending == ADDED) {
+                // the listener never heard of it
+                added.remove(entry);
+                continue;
+            }
+            if (entry.pending == UPDATED) {
+                updated.remove(entry);
+            }
+            removed.add(entry);
+        }
+        if (!removed.isEmpty()) {
+            schedulePublish();
+        }
+    }
+
+    private void schedulePublish() {
+        if (!publish_posted) {
+            publish_posted = true;
+            handler.postDelayed(publish, PUBLISH_INTERVAL_MS);
+        }
+    }
+
+    private void publish() {
+        if (added.isEmpty() && updated.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        List<Entry> added = new ArrayList<>(this.added);
+        List<Entry> updated = new ArrayList<>(this.updated);
+        List<Entry> removed = new ArrayList<>(this.removed);
+        this.added.clear();
+        this.updated.clear();
+        this.removed.clear();
+        for (Entry entry : added) {
+            entry.pending = PUBLISHED;
+        }
+        for (Entry entry : updated) {
+            entry.pending = PUBLISHED;
+        }
+        listener.onDevicesChanged(added, updated, removed);
+    }
+}
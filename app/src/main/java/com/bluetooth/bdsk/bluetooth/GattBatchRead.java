@@ -0,0 +1,80 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import android.bluetooth.BluetoothGatt;
+
+import java.util.UUID;
+
+/**
+ * Combined result of BleAdapterService.readBatchAsync(): one value and status per
+ * characteristic asked for, in the order they were asked for.
+ *
+ * A batch always completes, items that could not be read carry their error instead of a
+ * value, so whatever could be read is not lost to one missing characteristic.
+ */
+public final class GattBatchRead {
+    // the device has no such characteristic, or it was not discovered yet
+    public static final int NOT_FOUND = -2;
+    // refused, timed out or cut off by a disconnection before the device answered
+    public static final int NOT_READ = GattException.NO_STATUS;
+
+    private final String address;
+    private final UUID[] characteristic_uuids;
+    private final byte[][] values;
+    private final int[] statuses;
+    private final long started_nanos;
+    private long elapsed_nanos = -1;
+
+    GattBatchRead(String address, UUID[] characteristic_uuids) {
+        this.address = address;
+        this.characteristic_uuids = characteristic_uuids;
+        this.values = new byte[characteristic_uuids.length][];
+        this.statuses = new int[characteristic_uuids.length];
+        this.started_nanos = System.nanoTime();
+    }
+
+    void set(int index, byte[] value, int status) {
+        values[index] = value;
+        statuses[index] = status;
+    }
+
+    void finished() {
+        elapsed_nanos = System.nanoTime() - started_nanos;
+    }
+
+    public String address() {
+        return address;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public UUID characteristicUuid(int index) {
+        return characteristic_uuids[index];
+    }
+
+    // null unless status(index) is BluetoothGatt.GATT_SUCCESS
+    public byte[] value(int index) {
+        return values[index];
+    }
+
+    // BluetoothGatt.GATT_SUCCESS, the error status of the device, NOT_FOUND or NOT_READ
+    public int status(int index) {
+        return statuses[index];
+    }
+
+    // true if every characteristic was read
+    public boolean isComplete() {
+        for (int status : statuses) {
+            if (status != BluetoothGatt.GATT_SUCCESS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // from the call to readBatchAsync() to the last answer
+    public long elapsedNanos() {
+        return elapsed_nanos;
+    }
+}
@@ -0,0 +1,101 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Everything BleAdapterService knows about the connection to one remote device.
+ *
+ * The service keeps one of these per device address, each with its own BluetoothGattCallback
+ * and operation queue, so that one phone can be connected to several sensors at once
+ * without their handles or pending requests getting mixed up.
+ *
+ * A connection outlives its BluetoothGatt: when the link drops and reconnection is on, the
+ * connection waits in BleAdapterService.STATE_BACKOFF and opens a new BluetoothGatt later,
+ * keeping the indications that have to be re-armed.
+ */
+final class GattConnection {
+    static final long BACKOFF_BASE_MS = 1000;
+    static final long BACKOFF_MAX_MS = 60000;
+    // direct connection attempts after a link loss before leaving it to autoConnect
+    static final int DIRECT_ATTEMPTS = 4;
+
+    final String address;
+    final BluetoothDevice device;
+    final GattOperationQueue operation_queue;
+    final GattHandleCache handles;
+    volatile BluetoothGatt gatt;
+    volatile boolean connected = false;
+
+    // one of the BleAdapterService.STATE_ constants
+    volatile int state = BleAdapterService.STATE_CONNECTING;
+    volatile boolean auto_reconnect = true;
+    volatile boolean disconnect_requested = false;
+    // reconnection attempts since the link was lost
+    int attempt = 0;
+    // SystemClock.elapsedRealtime() when the link was lost, -1 while it is up
+    long lost_at_ms = -1;
+    // how long the last recovery took from link loss to streaming again, -1 if none yet
+    volatile long last_recovery_ms = -1;
+    // characteristics with notifications or indications on, re-armed after a reconnection
+    final List<Armed> armed = new ArrayList<>();
+    // CCCD writes queued by armIndications() still outstanding in STATE_SUBSCRIBING
+    final List<GattOperation> arming = new ArrayList<>();
+    Runnable reconnect;
+
+    // LinkProfile the link runs with, applied after every service discovery
+    volatile int link_profile = LinkProfile.BALANCED;
+    // MTU agreed with the device, back to the default on every new link
+    volatile int mtu = LinkProfile.DEFAULT_MTU;
+    boolean mtu_requested = false;
+
+    // waiting for the link to come up, see BleAdapterService.connectAsync()
+    final List<GattFuture<String>> connect_futures = new ArrayList<>();
+    // waiting for service discovery, see BleAdapterService.discoverServicesAsync()
+    final List<GattFuture<List<BluetoothGattService>>> discover_futures = new ArrayList<>();
+    volatile boolean services_discovered = false;
+
+    // System.nanoTime() when the BluetoothGatt was opened, 0 once the first reading is in
+    long opened_nanos = 0;
+    // from opening the BluetoothGatt to the first notification or indication, -1 if none yet
+    volatile long first_reading_ms = -1;
+
+    static final class Armed {
+        GattHandle handle;
+        // BleAdapterService.SUBSCRIBE_NOTIFICATIONS or SUBSCRIBE_INDICATIONS
+        final int mode;
+
+        Armed(GattHandle handle, int mode) {
+            this.handle = handle;
+            this.mode = mode;
+        }
+    }
+
+    GattConnection(String address, BluetoothDevice device, GattOperationQueue operation_queue) {
+        this.address = address;
+        this.device = device;
+        this.operation_queue = operation_queue;
+        this.handles = new GattHandleCache(address);
+    }
+
+    /**
+     * Delay before the next reconnection attempt: exponential in the number of attempts and
+     * capped, with the upper half randomised so sensors that dropped together do not all
+     * come back at the same instant.
+     */
+    long nextBackoffMillis(Random random) {
+        long ceiling = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(attempt, 16));
+        attempt++;
+        return ceiling / 2 + (long) (random.nextDouble() * (ceiling / 2));
+    }
+
+    // after a few direct attempts the stack is left to reconnect whenever the device shows up
+    boolean useAutoConnect() {
+        return attempt > DIRECT_ATTEMPTS;
+    }
+}
@@ -0,0 +1,29 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import java.io.IOException;
+
+/**
+ * A GATT request that did not succeed: refused by the Bluetooth stack, timed out, or
+ * answered with an error status by the device. Delivered through a failed GattFuture.
+ */
+public class GattException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    // status reported by the BluetoothGattCallback, NO_STATUS if the request never got that far
+    public static final int NO_STATUS = -1;
+
+    private final int status;
+
+    public GattException(String message) {
+        this(message, NO_STATUS);
+    }
+
+    public GattException(String message, int status) {
+        super(status == NO_STATUS ? message : message + " (status " + status + ")");
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,249 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import android.os.Handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Result of an asynchronous BleAdapterService request, completed from the
+ * BluetoothGattCallback.
+ *
+ * Callers should not block on get() from the main thread; they register a Callback,
+ * optionally on a Handler of their choice, or chain further requests with then(). all()
+ * waits for several futures, e.g. the same read fanned out over several devices. Requests
+ * queued on a connection are already given up after GattOperation.DEFAULT_TIMEOUT_MS;
+ * withTimeout() bounds the others, such as connecting, or a whole chain.
+ */
+public final class GattFuture<T> implements Future<T> {
+    public interface Callback<T> {
+        // the future is done, get() returns or throws right away
+        void onComplete(GattFuture<T> future);
+    }
+
+    public interface Continuation<T, R> {
+        // next request to make with the value of the previous one
+        GattFuture<R> then(T value) throws Exception;
+    }
+
+    private final Handler timer;
+    private boolean done = false;
+    private T value;
+    private Throwable failure;
+    private List<Runnable> listeners = new ArrayList<>();
+
+    GattFuture(Handler timer) {
+        this.timer = timer;
+    }
+
+    static <T> GattFuture<T> completed(Handler timer, T value) {
+        GattFuture<T> future = new GattFuture<>(timer);
+        future.complete(value);
+        return future;
+    }
+
+    static <T> GattFuture<T> failed(Handler timer, Throwable failure) {
+        GattFuture<T> future = new GattFuture<>(timer);
+        future.fail(failure);
+        return future;
+    }
+
+    // true if this call completed the future, false if it was already done
+    boolean complete(T value) {
+        return finish(value, null);
+    }
+
+    boolean fail(Throwable failure) {
+        return finish(null, failure);
+    }
+
+    // for GattOperation, which does not know the type of its future
+    @SuppressWarnings("unchecked")
+    boolean completeUnchecked(Object value) {
+        return finish((T) value, null);
+    }
+
+    private boolean finish(T value, Throwable failure) {
+        List<Runnable> to_run;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            done = true;
+            this.value = value;
+            this.failure = failure;
+            to_run = listeners;
+            listeners = null;
+            notifyAll();
+        }
+        for (Runnable listener : to_run) {
+            listener.run();
+        }
+        return true;
+    }
+
+    /**Calls callback once the future is done, on handler's thread or, if handler is null, on
+     * the thread completing it. Right away if it is done already.*/
+    public GattFuture<T> addCallback(final Callback<T> callback, final Handler handler) {
+        Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                if (handler == null) {
+                    callback.onComplete(GattFuture.this);
+                } else {
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onComplete(GattFuture.this);
+                        }
+                    });
+                }
+            }
+        };
+        synchronized (this) {
+            if (!done) {
+                listeners.add(listener);
+                return this;
+            }
+        }
+        listener.run();
+        return this;
+    }
+
+    /**Starts the request made by next once this one succeeds. The returned future completes
+     * with the result of that request, or fails with whatever failed first.*/
+    public <R> GattFuture<R> then(final Continuation<T, R> next) {
+        final GattFuture<R> result = new GattFuture<>(timer);
+        addCallback(new Callback<T>() {
+            @Override
+            public void onComplete(GattFuture<T> future) {
+                if (future.failure != null) {
+                    result.fail(future.failure);
+                    return;
+                }
+                GattFuture<R> following;
+                try {
+                    following = next.then(future.value);
+                } catch (Exception e) {
+                    result.fail(e);
+                    return;
+                }
+                following.addCallback(new Callback<R>() {
+                    @Override
+                    public void onComplete(GattFuture<R> future) {
+                        result.finish(future.value, future.failure);
+                    }
+                }, null);
+            }
+        }, null);
+        return result;
+    }
+
+    /**Completes with the values of all futures in order, or fails as soon as one of them
+     * fails. The futures themselves carry on.*/
+    public static <T> GattFuture<List<T>> all(Handler timer, final List<GattFuture<T>> futures) {
+        final GattFuture<List<T>> result = new GattFuture<>(timer);
+        final int[] remaining = {futures.size()};
+        if (futures.isEmpty()) {
+            result.complete(new ArrayList<T>());
+            return result;
+        }
+        for (GattFuture<T> future : futures) {
+            future.addCallback(new Callback<T>() {
+                @Override
+                public void onComplete(GattFuture<T> future) {
+                    if (future.failure != null) {
+                        result.fail(future.failure);
+                        return;
+                    }
+                    synchronized (remaining) {
+                        if (--remaining[0] > 0) {
+                            return;
+                        }
+                    }
+                    List<T> values = new ArrayList<>(futures.size());
+                    for (GattFuture<T> each : futures) {
+                        values.add(each.value);
+                    }
+                    result.complete(values);
+                }
+            }, null);
+        }
+        return result;
+    }
+
+    // fails the future with a TimeoutException if it is not done within timeout_ms
+    public GattFuture<T> withTimeout(final long timeout_ms) {
+        final Runnable expire = new Runnable() {
+            @Override
+            public void run() {
+                fail(new TimeoutException("no result after " + timeout_ms + "ms"));
+            }
+        };
+        timer.postDelayed(expire, timeout_ms);
+        addCallback(new Callback<T>() {
+            @Override
+            public void onComplete(GattFuture<T> future) {
+                timer.removeCallbacks(expire);
+            }
+        }, null);
+        return this;
+    }
+
+    @Override
+    public boolean cancel(boolean may_interrupt) {
+        return fail(new CancellationException());
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return failure instanceof CancellationException;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    // the failure of a future that is done, null if it succeeded or is not done yet
+    public synchronized Throwable failure() {
+        return failure;
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return result();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!done) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+        }
+        return result();
+    }
+
+    private T result() throws ExecutionException {
+        if (failure instanceof CancellationException) {
+            throw (CancellationException) failure;
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,60 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+
+import java.util.UUID;
+
+/**
+ * A characteristic of a connected device, resolved once after service discovery.
+ *
+ * Get one from BleAdapterService.getHandle() and pass it to the read, write and indication
+ * methods taking a handle: they go straight to the characteristic without parsing UUID
+ * strings or searching the services again. A handle belongs to one discovery of one
+ * connection; after a disconnect or a new discovery the service refuses it and a new one
+ * has to be asked for.
+ */
+public final class GattHandle {
+    // id of a characteristic that has no handle
+    public static final int NO_ID = -1;
+
+    public final String address;
+    // small number identifying the characteristic within its connection, see ReadingEvent
+    public final int id;
+    public final UUID service_uuid;
+    public final UUID characteristic_uuid;
+
+    final BluetoothGattCharacteristic characteristic;
+    // client characteristic configuration descriptor, null if the characteristic has none
+    final BluetoothGattDescriptor config;
+    private final int properties;
+    // GattHandleCache generation the handle was resolved in
+    final int generation;
+
+    GattHandle(String address, int id, BluetoothGattCharacteristic characteristic,
+               BluetoothGattDescriptor config, int generation) {
+        this.address = address;
+        this.id = id;
+        this.service_uuid = characteristic.getService().getUuid();
+        this.characteristic_uuid = characteristic.getUuid();
+        this.characteristic = characteristic;
+        this.config = config;
+        this.generation = generation;
+        this.properties = characteristic.getProperties();
+    }
+
+    // the characteristic can send unacknowledged notifications
+    public boolean canNotify() {
+        return config != null && (properties & BluetoothGattCharacteristic.PROPERTY_NOTIFY) != 0;
+    }
+
+    // the characteristic can send indications, each confirmed by the phone
+    public boolean canIndicate() {
+        return config != null && (properties & BluetoothGattCharacteristic.PROPERTY_INDICATE) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return address + " " + characteristic_uuid;
+    }
+}
@@ -0,0 +1,77 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+
+import com.bluetooth.bdsk.Constants;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The characteristics of one connection, indexed by service and characteristic UUID.
+ *
+ * Filled from the service list once discovery has completed and emptied when the connection
+ * goes away. Each fill or clear starts a new generation, so handles from an earlier one are
+ * recognised as stale instead of pointing at characteristics of a dead BluetoothGatt.
+ */
+final class GattHandleCache {
+    static final UUID CLIENT_CHARACTERISTIC_CONFIG = UUID.fromString(Constants.CLIENT_CHARACTERISTIC_CONFIG);
+
+    private final String address;
+    private final Map<UUID, Map<UUID, GattHandle>> services = new HashMap<>();
+    // the same handles by characteristic object, for the callbacks which only have that
+    private final Map<BluetoothGattCharacteristic, GattHandle> by_characteristic = new IdentityHashMap<>();
+    private int generation = 0;
+
+    GattHandleCache(String address) {
+        this.address = address;
+    }
+
+    synchronized void fill(List<BluetoothGattService> discovered) {
+        services.clear();
+        by_characteristic.clear();
+        generation++;
+        for (BluetoothGattService service : discovered) {
+            Map<UUID, GattHandle> characteristics = services.get(service.getUuid());
+            if (characteristics == null) {
+                characteristics = new HashMap<>();
+                services.put(service.getUuid(), characteristics);
+            }
+            for (BluetoothGattCharacteristic characteristic : service.getCharacteristics()) {
+                // with repeated UUIDs the first instance wins, as with BluetoothGatt.getService()
+                if (!characteristics.containsKey(characteristic.getUuid())) {
+                    GattHandle handle = new GattHandle(address, by_characteristic.size(), characteristic,
+                            characteristic.getDescriptor(CLIENT_CHARACTERISTIC_CONFIG), generation);
+                    characteristics.put(characteristic.getUuid(), handle);
+                    by_characteristic.put(characteristic, handle);
+                }
+            }
+        }
+    }
+
+    synchronized void clear() {
+        services.clear();
+        by_characteristic.clear();
+        generation++;
+    }
+
+    // null if discovery has not completed or the device has no such characteristic
+    synchronized GattHandle get(UUID service_uuid, UUID characteristic_uuid) {
+        Map<UUID, GattHandle> characteristics = services.get(service_uuid);
+        return characteristics == null ? null : characteristics.get(characteristic_uuid);
+    }
+
+    // GattHandle.id of a characteristic reported by a callback, GattHandle.NO_ID if it has no handle
+    synchronized int idOf(BluetoothGattCharacteristic characteristic) {
+        GattHandle handle = by_characteristic.get(characteristic);
+        return handle == null ? GattHandle.NO_ID : handle.id;
+    }
+
+    synchronized boolean isCurrent(GattHandle handle) {
+        return handle.generation == generation;
+    }
+}
@@ -0,0 +1,126 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+
+/**
+ * One request to the remote GATT server, waiting its turn in a GattOperationQueue.
+ *
+ * Values are only put on the characteristic or descriptor when the operation is started,
+ * since those objects are shared by every operation targeting them.
+ */
+final class GattOperation {
+    static final int READ_CHARACTERISTIC = 1;
+    static final int WRITE_CHARACTERISTIC = 2;
+    static final int WRITE_DESCRIPTOR = 3;
+    static final int READ_REMOTE_RSSI = 4;
+    static final int REQUEST_MTU = 5;
+    // has no callback, complete as soon as the stack accepts it
+    static final int REQUEST_CONNECTION_PRIORITY = 6;
+
+    static final long DEFAULT_TIMEOUT_MS = 5000;
+
+    final int type;
+    final BluetoothGattCharacteristic characteristic;
+    final BluetoothGattDescriptor descriptor;
+    final byte[] value;
+    // MTU or connection priority asked for
+    final int argument;
+    final long timeout_ms;
+    // completed from the BluetoothGattCallback, set by whoever enqueues the operation
+    GattFuture<?> future;
+
+    private GattOperation(int type, BluetoothGattCharacteristic characteristic,
+                          BluetoothGattDescriptor descriptor, byte[] value, int argument, long timeout_ms) {
+        this.type = type;
+        this.characteristic = characteristic;
+        this.descriptor = descriptor;
+        this.value = value;
+        this.argument = argument;
+        this.timeout_ms = timeout_ms;
+    }
+
+    static GattOperation readCharacteristic(BluetoothGattCharacteristic characteristic) {
+        return new GattOperation(READ_CHARACTERISTIC, characteristic, null, null, 0, DEFAULT_TIMEOUT_MS);
+    }
+
+    static GattOperation writeCharacteristic(BluetoothGattCharacteristic characteristic, byte[] value) {
+        return new GattOperation(WRITE_CHARACTERISTIC, characteristic, null, value, 0, DEFAULT_TIMEOUT_MS);
+    }
+
+    static GattOperation writeDescriptor(BluetoothGattDescriptor descriptor, byte[] value) {
+        return new GattOperation(WRITE_DESCRIPTOR, null, descriptor, value, 0, DEFAULT_TIMEOUT_MS);
+    }
+
+    static GattOperation readRemoteRssi() {
+        return new GattOperation(READ_REMOTE_RSSI, null, null, null, 0, DEFAULT_TIMEOUT_MS);
+    }
+
+    static GattOperation requestMtu(int mtu) {
+        return new GattOperation(REQUEST_MTU, null, null, null, mtu, DEFAULT_TIMEOUT_MS);
+    }
+
+    static GattOperation requestConnectionPriority(int priority) {
+        return new GattOperation(REQUEST_CONNECTION_PRIORITY, null, null, null, priority, DEFAULT_TIMEOUT_MS);
+    }
+
+    // characteristic or descriptor the callback will be about, null if it has none
+    Object target() {
+        return descriptor != null ? descriptor : characteristic;
+    }
+
+    // the request did not go through, tells whoever waits for it
+    void fail(String reason) {
+        if (future != null) {
+            future.fail(new GattException(this + " " + reason));
+        }
+    }
+
+    // false for operations the stack never calls back about
+    boolean hasCallback() {
+        return type != REQUEST_CONNECTION_PRIORITY;
+    }
+
+    // hands the operation to the Bluetooth stack, false if it refused it
+    boolean start(BluetoothGatt gatt) {
+        switch (type) {
+            case READ_CHARACTERISTIC:
+                return gatt.readCharacteristic(characteristic);
+            case WRITE_CHARACTERISTIC:
+                characteristic.setValue(value);
+                return gatt.writeCharacteristic(characteristic);
+            case WRITE_DESCRIPTOR:
+                descriptor.setValue(value);
+                return gatt.writeDescriptor(descriptor);
+            case READ_REMOTE_RSSI:
+                return gatt.readRemoteRssi();
+            case REQUEST_MTU:
+                return gatt.requestMtu(argument);
+            case REQUEST_CONNECTION_PRIORITY:
+                return gatt.requestConnectionPriority(argument);
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case READ_CHARACTERISTIC:
+                return "read " + characteristic.getUuid();
+            case WRITE_CHARACTERISTIC:
+                return "write " + characteristic.getUuid();
+            case WRITE_DESCRIPTOR:
+                return "write descriptor " + descriptor.getUuid();
+            case READ_REMOTE_RSSI:
+                return "read rssi";
+            case REQUEST_MTU:
+                return "request mtu " + argument;
+            case REQUEST_CONNECTION_PRIORITY:
+                return "request connection priority " + argument;
+            default:
+                return "operation " + type;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import android.bluetooth.BluetoothGatt;
+import android.os.Handler;
+import android.util.Log;
+
+import com.bluetooth.bdsk.Constants;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Android only allows one outstanding GATT operation per connection: a read, write or rssi
+ * request made while another one is in flight is refused, and the caller is rarely told.
+ *
+ * Operations are therefore queued here and started one at a time. The next one is dispatched
+ * as soon as the BluetoothGattCallback reports the current one as complete, so requests run
+ * back-to-back at the rate the link allows. An operation whose callback never arrives is
+ * given up after its timeout so it cannot stall the queue.
+ *
+ * Futures and the Listener are only ever called after the queue's lock has been let go,
+ * since they call back into the owner, which may be holding its own locks while it queues.
+ */
+final class GattOperationQueue {
+    interface Listener {
+        // the operation was refused by the Bluetooth stack or its callback never came
+        void onOperationFailed(GattOperation operation, String reason);
+    }
+
+    private final Handler timeout_handler;
+    private volatile Listener listener;
+    private final ArrayDeque<GattOperation> pending = new ArrayDeque<>();
+    private BluetoothGatt gatt;
+    private GattOperation current;
+    // posted when current was dispatched, see timeoutOf()
+    private Runnable current_timeout;
+
+    // operations dispatch() is done with, reported once the lock is let go
+    private static final class Finished {
+        // accepted by the stack and without a callback to wait for
+        final List<GattOperation> accepted = new ArrayList<>();
+        final List<GattOperation> refused = new ArrayList<>();
+    }
+
+    GattOperationQueue(Handler timeout_handler, Listener listener) {
+        this.timeout_handler = timeout_handler;
+        this.listener = listener;
+    }
+
+    // for owners that need the queue before they can build their listener
+    synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    void setGatt(BluetoothGatt gatt) {
+        Finished finished = new Finished();
+        synchronized (this) {
+            this.gatt = gatt;
+            dispatch(finished);
+        }
+        report(finished);
+    }
+
+    void enqueue(GattOperation operation) {
+        Finished finished = new Finished();
+        synchronized (this) {
+            pending.add(operation);
+            dispatch(finished);
+        }
+        report(finished);
+    }
+
+    // true if an operation of this type is queued or in flight
+    synchronized boolean contains(int type) {
+        if (current != null && current.type == type) {
+            return true;
+        }
+        for (GattOperation operation : pending) {
+            if (operation.type == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the queued or in flight operation of this type, null if there is none
+    synchronized GattOperation find(int type) {
+        if (current != null && current.type == type) {
+            return current;
+        }
+        for (GattOperation operation : pending) {
+            if (operation.type == type) {
+                return operation;
+            }
+        }
+        return null;
+    }
+
+    synchronized int size() {
+        return pending.size() + (current != null ? 1 : 0);
+    }
+
+    /**
+     * Called from the BluetoothGattCallback once an operation of the given type has finished,
+     * successfully or not, with the characteristic or descriptor the callback is about, null
+     * for those without one. Returns the operation so the caller can complete its future.
+     * Callbacks for anything other than the operation in flight, e.g. a late answer to a read
+     * of another characteristic that already timed out, are ignored and return null.
+     * A late answer for the same characteristic cannot be told apart, but it carries that
+     * characteristic's value all the same.
+     */
+    GattOperation complete(int type, Object target) {
+        GattOperation operation;
+        Finished finished = new Finished();
+        synchronized (this) {
+            if (current == null || current.type != type || current.target() != target) {
+                return null;
+            }
+            operation = current;
+            timeout_handler.removeCallbacks(current_timeout);
+            current = null;
+            current_timeout = null;
+            dispatch(finished);
+        }
+        report(finished);
+        return operation;
+    }
+
+    // drops everything, used when the connection goes away
+    void clear() {
+        List<GattOperation> dropped = new ArrayList<>();
+        synchronized (this) {
+            if (current != null) {
+                timeout_handler.removeCallbacks(current_timeout);
+                dropped.add(current);
+            }
+            dropped.addAll(pending);
+            pending.clear();
+            current = null;
+            current_timeout = null;
+            gatt = null;
+        }
+        for (GattOperation operation : dropped) {
+            operation.fail("cancelled, disconnected");
+        }
+    }
+
+    /**
+     * A timeout is bound to the operation it was posted for. One that was already running or
+     * due when its operation completed must not fail the operation dispatched after it.
+     */
+    private Runnable timeoutOf(final GattOperation operation) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                onTimeout(operation);
+            }
+        };
+    }
+
+    private void onTimeout(GattOperation operation) {
+        Finished finished = new Finished();
+        synchronized (this) {
+            if (current != operation) {
+                return;
+            }
+            Log.d(Constants.TAG, "GATT operation timed out: " + operation);
+            current = null;
+            current_timeout = null;
+            dispatch(finished);
+        }
+        operation.fail("timed out");
+        listener.onOperationFailed(operation, "timed out");
+        report(finished);
+    }
+
+    // starts what can be started, collecting the operations that are already over in finished
+    private void dispatch(Finished finished) {
+        while (current == null && gatt != null && !pending.isEmpty()) {
+            GattOperation operation = pending.poll();
+            if (operation.start(gatt)) {
+                if (!operation.hasCallback()) {
+                    finished.accepted.add(operation);
+                    continue;
+                }
+                current = operation;
+                current_timeout = timeoutOf(operation);
+                timeout_handler.postDelayed(current_timeout, operation.timeout_ms);
+            } else {
+                Log.d(Constants.TAG, "GATT operation refused: " + operation);
+                finished.refused.add(operation);
+            }
+        }
+    }
+
+    // completes or fails what dispatch() finished, called without holding the lock
+    private void report(Finished finished) {
+        for (GattOperation operation : finished.accepted) {
+            if (operation.future != null) {
+                operation.future.completeUnchecked(null);
+            }
+        }
+        for (GattOperation operation : finished.refused) {
+            operation.fail("refused");
+            listener.onOperationFailed(operation, "refused");
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import android.bluetooth.BluetoothGatt;
+
+/**
+ * Trade-offs between latency, throughput and battery a connection can be run with, see
+ * BleAdapterService.setLinkProfile().
+ *
+ * A profile is a connection priority, which picks the connection interval (about 7.5-15ms
+ * for HIGH, 30-50ms for BALANCED, 100-125ms for LOW_POWER), and the ATT MTU to ask for.
+ * The MTU can only be exchanged once per connection, so a later switch only changes the
+ * priority unless the MTU has not been asked for yet.
+ */
+public final class LinkProfile {
+    public static final int BALANCED = 0;
+    // live streaming and bulk reads
+    public static final int HIGH = 1;
+    // overnight logging
+    public static final int LOW_POWER = 2;
+    public static final String[] NAMES = {"balanced", "high", "low power"};
+
+    // MTU every connection starts with
+    public static final int DEFAULT_MTU = 23;
+    // 247 bytes fill one 251 byte link layer packet with data length extension
+    public static final int STREAMING_MTU = 247;
+
+    private LinkProfile() {
+    }
+
+    static int connectionPriority(int profile) {
+        switch (profile) {
+            case HIGH:
+                return BluetoothGatt.CONNECTION_PRIORITY_HIGH;
+            case LOW_POWER:
+                return BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER;
+            default:
+                return BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+        }
+    }
+
+    // MTU to ask for, DEFAULT_MTU if the profile does not need a larger one
+    static int mtu(int profile) {
+        return profile == LOW_POWER ? DEFAULT_MTU : STREAMING_MTU;
+    }
+}
@@ -0,0 +1,59 @@
+package com.bluetooth.bdsk.bluetooth;
+
+/**
+ * One notification or indication, as handed to a ReadingSubscription's consumer.
+ *
+ * Events are owned by the subscription and reused, so they are only valid inside the
+ * ReadingRingBuffer.Consumer callback. Copy whatever has to outlive it.
+ */
+public final class ReadingEvent {
+    // ATT payload of a connection with the default MTU, larger values grow the buffer
+    static final int DEFAULT_VALUE_CAPACITY = 20;
+
+    String address;
+    int characteristic_id;
+    byte[] value = new byte[DEFAULT_VALUE_CAPACITY];
+    int length;
+    long timestamp_nanos;
+
+    // device the value comes from
+    public String address() {
+        return address;
+    }
+
+    // GattHandle.id of the characteristic, GattHandle.NO_ID if it was not resolved
+    public int characteristicId() {
+        return characteristic_id;
+    }
+
+    // only the first length() bytes are part of this event
+    public byte[] value() {
+        return value;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    // System.nanoTime() when the value arrived
+    public long timestampNanos() {
+        return timestamp_nanos;
+    }
+
+    void set(String address, int characteristic_id, byte[] src, long timestamp_nanos) {
+        set(address, characteristic_id, src, src == null ? 0 : src.length, timestamp_nanos);
+    }
+
+    void set(String address, int characteristic_id, byte[] src, int length, long timestamp_nanos) {
+        if (length > value.length) {
+            value = new byte[length];
+        }
+        if (length > 0) {
+            System.arraycopy(src, 0, value, 0, length);
+        }
+        this.address = address;
+        this.characteristic_id = characteristic_id;
+        this.length = length;
+        this.timestamp_nanos = timestamp_nanos;
+    }
+}
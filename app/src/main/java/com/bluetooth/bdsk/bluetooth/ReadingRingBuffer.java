@@ -0,0 +1,78 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fixed size ring of preallocated ReadingEvents between the Bluetooth callback thread, the
+ * only producer, and the thread draining it, the only consumer.
+ *
+ * Publishing copies the value into the next free event and moves the write sequence, nothing
+ * is allocated. When the ring is full the new value is dropped and counted, the events the
+ * consumer has not seen yet are never overwritten. publish() returns true only for the first
+ * event after a drain, so the producer can wake the consumer once per batch instead of
+ * once per packet.
+ */
+public final class ReadingRingBuffer {
+    public interface Consumer {
+        // the event is reused once this returns
+        void onReading(ReadingEvent event);
+    }
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final ReadingEvent[] events;
+    private final int mask;
+    // next sequence to be written, only moved by the producer
+    private volatile long write_sequence = 0;
+    // next sequence to be read, only moved by the consumer
+    private volatile long read_sequence = 0;
+    private volatile long dropped = 0;
+    private final AtomicBoolean drain_pending = new AtomicBoolean(false);
+
+    // capacity is rounded up to a power of two
+    public ReadingRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        events = new ReadingEvent[size];
+        for (int i = 0; i < size; i++) {
+            events[i] = new ReadingEvent();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Producer side. Returns true if the consumer has to be told there is something to drain,
+     * false if a wake up is already on its way or the value was dropped.
+     */
+    public boolean publish(String address, int characteristic_id, byte[] value, long timestamp_nanos) {
+        long sequence = write_sequence;
+        if (sequence - read_sequence > mask) {
+            dropped++;
+            return false;
+        }
+        events[(int) (sequence & mask)].set(address, characteristic_id, value, timestamp_nanos);
+        write_sequence = sequence + 1;
+        return drain_pending.compareAndSet(false, true);
+    }
+
+    // consumer side, hands every published event to consumer and returns how many there were
+    public int drain(Consumer consumer) {
+        // cleared first, so a value published while draining wakes the consumer again
+        drain_pending.set(false);
+        long sequence = read_sequence;
+        long end = write_sequence;
+        for (long s = sequence; s < end; s++) {
+            consumer.onReading(events[(int) (s & mask)]);
+        }
+        read_sequence = end;
+        return (int) (end - sequence);
+    }
+
+    // values lost because the consumer fell a whole ring behind
+    public long dropped() {
+        return dropped;
+    }
+
+    public int capacity() {
+        return events.length;
+    }
+}
@@ -0,0 +1,151 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One consumer of the notifications and indications received by BleAdapterService, see
+ * BleAdapterService.subscribe().
+ *
+ * Every subscription has its own buffer and is delivered on its own Handler, so a consumer
+ * that falls behind only ever delays or loses its own readings:
+ *  - EVERY_EVENT hands over every reading in order, through a private ReadingRingBuffer.
+ *    If the consumer falls a whole ring behind the newest readings are dropped and counted.
+ *  - LATEST keeps only the newest value per device and characteristic. A consumer that is
+ *    late sees the current value, never a backlog. Meant for screens.
+ *  - SAMPLED is LATEST delivered at most sample_hz times a second.
+ */
+public final class ReadingSubscription {
+    public static final int EVERY_EVENT = 0;
+    public static final int LATEST = 1;
+    public static final int SAMPLED = 2;
+
+    private final Handler handler;
+    private final int policy;
+    private final long interval_ms;
+    private final String address;
+    private final ReadingRingBuffer.Consumer consumer;
+    private volatile boolean cancelled = false;
+
+    // EVERY_EVENT
+    private final ReadingRingBuffer ring;
+
+    // LATEST and SAMPLED: newest value per characteristic, written by the producer under the
+    // lock of this object and copied to the delivery events before the consumer sees them
+    private final List<ReadingEvent> latest = new ArrayList<>();
+    private final List<ReadingEvent> delivery = new ArrayList<>();
+    private final List<ReadingEvent> dirty = new ArrayList<>();
+    private boolean delivery_posted = false;
+    private long last_delivery_ms = 0;
+
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            if (!cancelled) {
+                ring.drain(consumer);
+            }
+        }
+    };
+
+    private final Runnable deliver_latest = new Runnable() {
+        @Override
+        public void run() {
+            deliverLatest();
+        }
+    };
+
+    ReadingSubscription(Handler handler, int policy, int sample_hz, String address,
+                        ReadingRingBuffer.Consumer consumer) {
+        if (policy == SAMPLED && sample_hz <= 0) {
+            throw new IllegalArgumentException("sample rate must be positive: " + sample_hz);
+        }
+        this.handler = handler;
+        this.policy = policy;
+        this.interval_ms = policy == SAMPLED ? 1000 / sample_hz : 0;
+        this.address = address;
+        this.consumer = consumer;
+        this.ring = policy == EVERY_EVENT ? new ReadingRingBuffer(ReadingRingBuffer.DEFAULT_CAPACITY) : null;
+    }
+
+    public int policy() {
+        return policy;
+    }
+
+    // readings an EVERY_EVENT subscriber lost by falling behind
+    public long dropped() {
+        return ring == null ? 0 : ring.dropped();
+    }
+
+    // stops deliveries, use BleAdapterService.unsubscribe() to also release the subscription
+    public void cancel() {
+        cancelled = true;
+        handler.removeCallbacks(drain);
+        handler.removeCallbacks(deliver_latest);
+    }
+
+    // called on the Bluetooth callback thread for every reading of every device
+    synchronized void publish(String address, int characteristic_id, byte[] value, long timestamp_nanos) {
+        if (cancelled || (this.address != null && !this.address.equals(address))) {
+            return;
+        }
+        if (ring != null) {
+            if (ring.publish(address, characteristic_id, value, timestamp_nanos)) {
+                handler.post(drain);
+            }
+            return;
+        }
+        ReadingEvent slot = slot(latest, address, characteristic_id);
+        slot.set(address, characteristic_id, value, timestamp_nanos);
+        if (!dirty.contains(slot)) {
+            dirty.add(slot);
+        }
+        if (!delivery_posted) {
+            delivery_posted = true;
+            handler.postAtTime(deliver_latest, last_delivery_ms + interval_ms);
+        }
+    }
+
+    private void deliverLatest() {
+        int count;
+        synchronized (this) {
+            delivery_posted = false;
+            last_delivery_ms = SystemClock.uptimeMillis();
+            count = dirty.size();
+            // delivery events are only touched on the handler thread, the copy lets the
+            // producer go on updating the latest values while the consumer runs
+            while (delivery.size() < count) {
+                delivery.add(new ReadingEvent());
+            }
+            for (int i = 0; i < count; i++) {
+                ReadingEvent source = dirty.get(i);
+                delivery.get(i).set(source.address, source.characteristic_id,
+                        source.value, source.length, source.timestamp_nanos);
+            }
+            dirty.clear();
+        }
+        if (cancelled) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            consumer.onReading(delivery.get(i));
+        }
+    }
+
+    // the event for a characteristic, added at the end the first time it is seen
+    private static ReadingEvent slot(List<ReadingEvent> slots, String address, int characteristic_id) {
+        for (int i = 0; i < slots.size(); i++) {
+            ReadingEvent event = slots.get(i);
+            if (event.characteristic_id == characteristic_id && event.address.equals(address)) {
+                return event;
+            }
+        }
+        ReadingEvent event = new ReadingEvent();
+        event.address = address;
+        event.characteristic_id = characteristic_id;
+        slots.add(event);
+        return event;
+    }
+}
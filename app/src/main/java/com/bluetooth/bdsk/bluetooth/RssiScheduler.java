@@ -0,0 +1,183 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.bluetooth.bdsk.Constants;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the RSSI of every sampled device from one background thread, at a rate that follows
+ * the signal instead of a fixed period.
+ *
+ * A device that is moving, i.e. whose RSSI jumped by MOVING_DB or more since the last
+ * sample, is read twice as often, down to MIN_INTERVAL_MS. One that stays within STEADY_DB
+ * is read half as often again, up to MAX_INTERVAL_MS. RSSI requests share the single GATT
+ * channel with the temperature traffic, so while other operations are queued or readings
+ * come in faster than BUSY_READINGS_PER_S, sampling is postponed with a growing delay. A
+ * device is still sampled at least every MAX_INTERVAL_MS however busy its link is.
+ */
+final class RssiScheduler {
+    interface Source {
+        // queued or in flight GATT operations of the device, -1 if it is not connected
+        int queuedOperations(String address);
+
+        GattFuture<Integer> readRssi(String address);
+    }
+
+    static final long MIN_INTERVAL_MS = 500;
+    static final long MAX_INTERVAL_MS = 10000;
+    // what the fixed timer used to do
+    static final long START_INTERVAL_MS = 2000;
+    // RSSI jitters by a few dB even when nothing moves
+    static final int STEADY_DB = 3;
+    static final int MOVING_DB = 8;
+    // notifications plus indications per second above which the link counts as busy
+    static final float BUSY_READINGS_PER_S = 10;
+
+    private static final int NO_RSSI = Integer.MIN_VALUE;
+
+    private final Source source;
+    private final HandlerThread thread;
+    private final Handler handler;
+    // a ConcurrentMap, Map.putIfAbsent() only exists from API 24
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // state of one device, only touched on the scheduler thread but for readings
+    private final class Entry implements Runnable, GattFuture.Callback<Integer> {
+        final String address;
+        final AtomicInteger readings = new AtomicInteger();
+        long interval_ms = START_INTERVAL_MS;
+        // delay while the link is busy, 0 if it was not at the last tick
+        long busy_delay_ms = 0;
+        long last_tick_ms;
+        long last_sample_ms;
+        int last_rssi = NO_RSSI;
+
+        Entry(String address) {
+            this.address = address;
+            this.last_tick_ms = SystemClock.uptimeMillis();
+            this.last_sample_ms = last_tick_ms;
+        }
+
+        @Override
+        public void run() {
+            tick(this);
+        }
+
+        @Override
+        public void onComplete(GattFuture<Integer> future) {
+            sampled(this, future);
+        }
+    }
+
+    RssiScheduler(Source source) {
+        this.source = source;
+        this.thread = new HandlerThread("rssi", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    // starts sampling a device, right away, does nothing if it is sampled already
+    void start(String address) {
+        Entry entry = new Entry(address);
+        if (entries.putIfAbsent(address, entry) == null) {
+            handler.post(entry);
+        }
+    }
+
+    void stop(String address) {
+        Entry entry = entries.remove(address);
+        if (entry != null) {
+            handler.removeCallbacks(entry);
+        }
+    }
+
+    boolean isSampling(String address) {
+        return entries.containsKey(address);
+    }
+
+    // called for every notification or indication, this is how busy the link is
+    void onReading(String address) {
+        Entry entry = entries.get(address);
+        if (entry != null) {
+            entry.readings.incrementAndGet();
+        }
+    }
+
+    // current sampling interval of a device, -1 if it is not sampled
+    long intervalMillis(String address) {
+        Entry entry = entries.get(address);
+        return entry == null ? -1 : entry.interval_ms;
+    }
+
+    void quit() {
+        entries.clear();
+        handler.removeCallbacksAndMessages(null);
+        thread.quit();
+    }
+
+    private void tick(Entry entry) {
+        if (entries.get(entry.address) != entry) {
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        int queued = source.queuedOperations(entry.address);
+        float readings_per_s = entry.readings.getAndSet(0) * 1000f / Math.max(1, now - entry.last_tick_ms);
+        entry.last_tick_ms = now;
+        if (queued < 0) {
+            // not connected, e.g. waiting to reconnect, look again later
+            handler.postDelayed(entry, entry.interval_ms);
+            return;
+        }
+        boolean busy = queued > 0 || readings_per_s > BUSY_READINGS_PER_S;
+        if (busy && now - entry.last_sample_ms < MAX_INTERVAL_MS) {
+            // leave the channel to the temperatures and try again later, a bit less eagerly each time
+            entry.busy_delay_ms = entry.busy_delay_ms == 0
+                    ? entry.interval_ms : Math.min(MAX_INTERVAL_MS, entry.busy_delay_ms * 2);
+            handler.postDelayed(entry, entry.busy_delay_ms);
+            return;
+        }
+        entry.busy_delay_ms = 0;
+        entry.last_sample_ms = now;
+        source.readRssi(entry.address).addCallback(entry, handler);
+    }
+
+    private void sampled(Entry entry, GattFuture<Integer> future) {
+        if (entries.get(entry.address) != entry) {
+            return;
+        }
+        Integer rssi = future.failure() == null ? valueOf(future) : null;
+        if (rssi != null) {
+            long interval_ms = entry.interval_ms;
+            if (entry.last_rssi != NO_RSSI) {
+                int change = Math.abs(rssi - entry.last_rssi);
+                if (change >= MOVING_DB) {
+                    interval_ms = Math.max(MIN_INTERVAL_MS, interval_ms / 2);
+                } else if (change <= STEADY_DB) {
+                    interval_ms = Math.min(MAX_INTERVAL_MS, interval_ms * 3 / 2);
+                }
+            }
+            if (interval_ms != entry.interval_ms) {
+                Log.d(Constants.TAG, entry.address + " rssi " + rssi + ", sampling every " + interval_ms + "ms");
+                entry.interval_ms = interval_ms;
+            }
+            entry.last_rssi = rssi;
+        }
+        handler.postDelayed(entry, entry.interval_ms);
+    }
+
+    private static Integer valueOf(GattFuture<Integer> future) {
+        try {
+            return future.get();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
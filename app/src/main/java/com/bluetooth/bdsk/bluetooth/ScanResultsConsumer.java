@@ -1,9 +1,14 @@
 package com.bluetooth.bdsk.bluetooth;
 import android.bluetooth.BluetoothDevice;
+import android.bluetooth.le.ScanResult;
+
+import java.util.List;
 
 public interface ScanResultsConsumer {
 
     public void candidateBleDevice(BluetoothDevice device, byte[] scan_record, int rssi);
+    // all advertisements of one report delay at once, see BleScanner.setReportDelay()
+    public void candidateBleDevices(List<ScanResult> results);
     public void scanningStarted();
     public void scanningStopped();
 }
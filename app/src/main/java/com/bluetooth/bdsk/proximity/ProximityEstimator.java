@@ -0,0 +1,110 @@
+package com.bluetooth.bdsk.proximity;
+
+/**
+ * Near/medium/far estimate of one device from its RSSI samples.
+ *
+ * Single RSSI samples jump by several dB with the device standing still, so they are run
+ * through a one dimensional Kalman filter first. Its uncertainty grows with the time since
+ * the previous sample, so a slowly sampled device follows a new sample more readily than
+ * one sampled every half second. The filtered RSSI is turned into a distance with the log
+ * distance path loss model, calibrated with the TX power of the device when it is known.
+ *
+ * A band is only left once the distance is HYSTERESIS past its boundary, so an estimate
+ * sitting right on a boundary does not flip between two bands.
+ */
+public final class ProximityEstimator {
+    public static final int UNKNOWN = 0;
+    public static final int NEAR = 1;
+    public static final int MEDIUM = 2;
+    public static final int FAR = 3;
+
+    // band boundaries in metres, about where the old fixed -50/-80dBm limits were
+    public static final float NEAR_M = 0.5f;
+    public static final float FAR_M = 7f;
+    // fraction of a boundary the distance has to go past it to change band
+    public static final float HYSTERESIS = 0.25f;
+
+    // RSSI at one metre when the TX power of the device is not known
+    public static final int DEFAULT_MEASURED_POWER_DBM = -59;
+    // free space loss over the first metre at 2.4GHz
+    static final int LOSS_AT_1M_DB = 41;
+    // 2 in free space, more indoors
+    static final float PATH_LOSS_EXPONENT = 2.5f;
+    // the noise of single samples, about 4dB standard deviation
+    static final float MEASUREMENT_VARIANCE = 16f;
+    // how much the true RSSI may wander per second, a person walking
+    static final float PROCESS_VARIANCE_PER_S = 2f;
+
+    private int measured_power_dbm = DEFAULT_MEASURED_POWER_DBM;
+    private boolean has_estimate = false;
+    private float estimate;
+    private float variance;
+    private long last_ms;
+    private int band = UNKNOWN;
+
+    // TX power as read from the Tx Power Level characteristic, dBm
+    public void setTxPower(int tx_power_dbm) {
+        measured_power_dbm = tx_power_dbm - LOSS_AT_1M_DB;
+    }
+
+    /**
+     * Adds a sample taken at now_ms, any monotonic clock in milliseconds.
+     * @return true if the band changed, i.e. the screen needs updating
+     */
+    public boolean update(int rssi, long now_ms) {
+        if (!has_estimate) {
+            estimate = rssi;
+            variance = MEASUREMENT_VARIANCE;
+            has_estimate = true;
+        } else {
+            variance += PROCESS_VARIANCE_PER_S * Math.max(0, now_ms - last_ms) / 1000f;
+            float gain = variance / (variance + MEASUREMENT_VARIANCE);
+            estimate += gain * (rssi - estimate);
+            variance *= 1 - gain;
+        }
+        last_ms = now_ms;
+        int next = bandOf(distanceMeters());
+        if (next == band) {
+            return false;
+        }
+        band = next;
+        return true;
+    }
+
+    // forgets the samples, e.g. after the link was lost, the TX power is kept
+    public void reset() {
+        has_estimate = false;
+        band = UNKNOWN;
+    }
+
+    // NEAR, MEDIUM, FAR, or UNKNOWN before the first sample
+    public int band() {
+        return band;
+    }
+
+    // filtered RSSI in dBm, only meaningful once there is a band
+    public float rssi() {
+        return estimate;
+    }
+
+    public float distanceMeters() {
+        return (float) Math.pow(10, (measured_power_dbm - estimate) / (10 * PATH_LOSS_EXPONENT));
+    }
+
+    private int bandOf(float distance) {
+        float near_limit = NEAR_M;
+        float far_limit = FAR_M;
+        if (band != UNKNOWN) {
+            // the boundaries of the current band move away from the estimate
+            near_limit *= band == NEAR ? 1 + HYSTERESIS : 1 - HYSTERESIS;
+            far_limit *= band == FAR ? 1 - HYSTERESIS : 1 + HYSTERESIS;
+        }
+        if (distance <= near_limit) {
+            return NEAR;
+        }
+        if (distance >= far_limit) {
+            return FAR;
+        }
+        return MEDIUM;
+    }
+}
@@ -0,0 +1,65 @@
+package com.bluetooth.bdsk.temperature;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds the one calibration table shared by every screen and service of the process.
+ * The points come from the CalibrationData arrays generated out of src/main/calibration.
+ *
+ * The table is immutable once built, so it is built at most once per process: either on
+ * the background thread started by prefetch() when the app comes up, or on first use by
+ * whoever needs it before that thread is done. Activities being recreated on rotation or
+ * re-entry just pick up the existing instance.
+ */
+public final class Calibration {
+    // the Miji_Bluetooth01 curve, src/main/calibration/miji_bluetooth01.csv
+    public static final String DEFAULT_PROFILE = "miji_bluetooth01";
+
+    private static final Object lock = new Object();
+    private static final AtomicBoolean prefetch_started = new AtomicBoolean(false);
+    private static volatile TemperatureDecoder decoder;
+    private static volatile long build_time_ns = -1;
+
+    private Calibration() {
+    }
+
+    /**
+     * Starts building the table, and its Celsius display strings, on a background thread if
+     * nobody has asked for it yet, so that by the time a reading arrives decoder() returns
+     * without waiting.
+     */
+    public static void prefetch() {
+        if (decoder != null || !prefetch_started.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                TemperatureDisplay.get(decoder(), TemperatureDisplay.CELSIUS);
+            }
+        }, "calibration");
+        thread.start();
+    }
+
+    // the shared decoder, building it on the calling thread if it does not exist yet
+    public static TemperatureDecoder decoder() {
+        TemperatureDecoder result = decoder;
+        if (result != null) {
+            return result;
+        }
+        synchronized (lock) {
+            if (decoder == null) {
+                long start = System.nanoTime();
+                TemperatureDecoder built = CalibrationData.curve(DEFAULT_PROFILE).toDecoder();
+                build_time_ns = System.nanoTime() - start;
+                decoder = built;
+            }
+            return decoder;
+        }
+    }
+
+    // how long building the table took, or -1 if it has not been built yet
+    public static long buildTimeNanos() {
+        return build_time_ns;
+    }
+}
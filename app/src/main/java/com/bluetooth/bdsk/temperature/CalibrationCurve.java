@@ -0,0 +1,137 @@
+package com.bluetooth.bdsk.temperature;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Piecewise-linear thermistor curve through a set of (raw code, temperature) calibration points.
+ *
+ * The calibration tables only list some of the codes a sensor can send. Instead of decoding
+ * unlisted codes to null, the curve interpolates between the two nearest points, and
+ * toDecoder() evaluates it once for every code in range so that decoding stays a single
+ * array access. Codes outside the first and last points are reported as out of range
+ * rather than extrapolated.
+ */
+public final class CalibrationCurve {
+    private final int[] codes;
+    private final int[] tenths;
+
+    /**
+     * @param codes raw codes of the calibration points, in ascending order without repeats
+     * @param tenths temperature of each point in tenths of a degree Celsius
+     */
+    public CalibrationCurve(int[] codes, int[] tenths) {
+        if (codes.length != tenths.length || codes.length == 0) {
+            throw new IllegalArgumentException("calibration curve needs matching, non empty point arrays");
+        }
+        for (int i = 1; i < codes.length; i++) {
+            if (codes[i] <= codes[i - 1]) {
+                throw new IllegalArgumentException("calibration codes must be ascending: "
+                        + Integer.toHexString(codes[i]));
+            }
+        }
+        this.codes = codes;
+        this.tenths = tenths;
+    }
+
+    // curve through the points of a hex code -> degrees table such as TemperatureMap.getValues()
+    public static CalibrationCurve fromTable(Map<String, String> table) {
+        int[] codes = new int[table.size()];
+        int n = 0;
+        for (String key : table.keySet()) {
+            codes[n++] = Integer.parseInt(key.trim(), 16);
+        }
+        Arrays.sort(codes);
+        int[] tenths = new int[codes.length];
+        for (Map.Entry<String, String> entry : table.entrySet()) {
+            int code = Integer.parseInt(entry.getKey().trim(), 16);
+            tenths[Arrays.binarySearch(codes, code)] = parseTenths(entry.getValue());
+        }
+        return new CalibrationCurve(codes, tenths);
+    }
+
+    public int firstCode() {
+        return codes[0];
+    }
+
+    public int lastCode() {
+        return codes[codes.length - 1];
+    }
+
+    /**
+     * Evaluates the curve at one raw code by searching for the surrounding points.
+     * Use toDecoder() for the per sample path.
+     */
+    public int interpolate(int raw_code) {
+        if (raw_code < firstCode()) {
+            return TemperatureDecoder.OVER_RANGE;
+        }
+        if (raw_code > lastCode()) {
+            return TemperatureDecoder.UNDER_RANGE;
+        }
+        int i = Arrays.binarySearch(codes, raw_code);
+        if (i >= 0) {
+            return tenths[i];
+        }
+        int upper = -i - 1;
+        int lower = upper - 1;
+        long span = codes[upper] - codes[lower];
+        long offset = raw_code - codes[lower];
+        long delta = (long) (tenths[upper] - tenths[lower]) * offset;
+        // round half away from zero so the result does not depend on the sign of the slope
+        long step = delta >= 0 ? (delta * 2 + span) / (span * 2) : -((-delta * 2 + span) / (span * 2));
+        return (int) (tenths[lower] + step);
+    }
+
+    // dense code -> temperature table covering every code from the first to the last point
+    public TemperatureDecoder toDecoder() {
+        int first = firstCode();
+        int[] table = new int[lastCode() - first + 1];
+        int point = 0;
+        for (int i = 0; i < table.length; i++) {
+            int code = first + i;
+            while (codes[point] < code) {
+                point++;
+            }
+            table[i] = codes[point] == code ? tenths[point] : interpolate(code);
+        }
+        return new TemperatureDecoder(first, table);
+    }
+
+    /**
+     * Accuracy of the curve against a reference table: the largest difference, in tenths of a
+     * degree, between what the table says and what the curve decodes for the same code.
+     * A curve built from a thinned out copy of a table can be checked against the full one.
+     */
+    public int maxErrorTenths(Map<String, String> reference) {
+        int max = 0;
+        for (Map.Entry<String, String> entry : reference.entrySet()) {
+            int code = Integer.parseInt(entry.getKey().trim(), 16);
+            int decoded = interpolate(code);
+            if (!TemperatureDecoder.isTemperature(decoded)) {
+                return Integer.MAX_VALUE;
+            }
+            max = Math.max(max, Math.abs(decoded - parseTenths(entry.getValue())));
+        }
+        return max;
+    }
+
+    // "-5.6" -> -56, also accepting the "-5,6" decimal comma found in the table
+    static int parseTenths(String degrees) {
+        String value = degrees.trim().replace(',', '.');
+        boolean negative = value.startsWith("-");
+        if (negative) {
+            value = value.substring(1);
+        }
+        int dot = value.indexOf('.');
+        int result;
+        if (dot < 0) {
+            result = Integer.parseInt(value) * 10;
+        } else {
+            String decimals = value.substring(dot + 1);
+            result = Integer.parseInt(value.substring(0, dot)) * 10
+                    + (decimals.isEmpty() ? 0 : decimals.charAt(0) - '0');
+        }
+        return negative ? -result : result;
+    }
+}
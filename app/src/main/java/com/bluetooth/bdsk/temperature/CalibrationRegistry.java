@@ -0,0 +1,141 @@
+package com.bluetooth.bdsk.temperature;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Picks the calibration curve matching a sensor and keeps the recently used ones loaded.
+ *
+ * Probe batches with different thermistors get their own CSV in src/main/calibration. A sensor
+ * is matched to a profile by, in order: its Device Information model and firmware strings,
+ * its model string alone, and its advertised device name. Each of those is normalised
+ * ("Miji_Bluetooth01" -> "miji_bluetooth01") and looked up first among the aliases added
+ * with register() and then among the generated profiles. Sensors nothing matches get
+ * Calibration.DEFAULT_PROFILE.
+ *
+ * Profiles are turned into decoders the first time they are asked for and the most recently
+ * used MAX_LOADED of them are kept. Callers are expected to resolve a decoder once per
+ * connection and keep it, not to come back here for every sample.
+ */
+public final class CalibrationRegistry {
+    public static final int MAX_LOADED = 4;
+
+    // where the curves come from, the generated CalibrationData but in tests
+    interface Source {
+        boolean hasProfile(String profile);
+
+        // null if there is no such profile
+        CalibrationCurve curve(String profile);
+    }
+
+    private static final Source GENERATED = new Source() {
+        @Override
+        public boolean hasProfile(String profile) {
+            return Arrays.asList(CalibrationData.PROFILES).contains(profile);
+        }
+
+        @Override
+        public CalibrationCurve curve(String profile) {
+            return CalibrationData.curve(profile);
+        }
+    };
+
+    private static final CalibrationRegistry shared = new CalibrationRegistry();
+
+    private final Source source;
+    private final Map<String, String> aliases = new HashMap<>();
+    private final LinkedHashMap<String, TemperatureDecoder> loaded =
+            new LinkedHashMap<String, TemperatureDecoder>(MAX_LOADED + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TemperatureDecoder> eldest) {
+                    return size() > MAX_LOADED;
+                }
+            };
+
+    public CalibrationRegistry() {
+        this(GENERATED);
+    }
+
+    CalibrationRegistry(Source source) {
+        this.source = source;
+    }
+
+    // the registry shared by the whole process
+    public static CalibrationRegistry shared() {
+        return shared;
+    }
+
+    /**
+     * Maps a device name, model string or "model firmware" pair onto a profile whose CSV
+     * file is named differently.
+     */
+    public synchronized void register(String device_key, String profile) {
+        if (!hasProfile(profile)) {
+            throw new IllegalArgumentException("no calibration profile " + profile);
+        }
+        aliases.put(normalise(device_key), profile);
+    }
+
+    // profile to use for a sensor, any of the arguments may be null if it is not known yet
+    public synchronized String profileFor(String device_name, String model, String firmware) {
+        String profile = null;
+        if (model != null && firmware != null) {
+            profile = lookup(model + " " + firmware);
+        }
+        if (profile == null && model != null) {
+            profile = lookup(model);
+        }
+        if (profile == null && device_name != null) {
+            profile = lookup(device_name);
+        }
+        return profile != null ? profile : Calibration.DEFAULT_PROFILE;
+    }
+
+    public TemperatureDecoder decoderFor(String device_name, String model, String firmware) {
+        return decoder(profileFor(device_name, model, firmware));
+    }
+
+    // decoder of a profile, loading it if it is not one of the recently used ones
+    public synchronized TemperatureDecoder decoder(String profile) {
+        if (Calibration.DEFAULT_PROFILE.equals(profile)) {
+            // built once and held by Calibration for the lifetime of the process
+            return Calibration.decoder();
+        }
+        TemperatureDecoder decoder = loaded.get(profile);
+        if (decoder == null) {
+            CalibrationCurve curve = source.curve(profile);
+            if (curve == null) {
+                throw new IllegalArgumentException("no calibration profile " + profile);
+            }
+            decoder = curve.toDecoder();
+            loaded.put(profile, decoder);
+        }
+        return decoder;
+    }
+
+    // true if the decoder of a profile is one of the recently used ones kept loaded
+    synchronized boolean isLoaded(String profile) {
+        return loaded.containsKey(profile);
+    }
+
+    private String lookup(String device_key) {
+        String key = normalise(device_key);
+        String profile = aliases.get(key);
+        if (profile == null && hasProfile(key)) {
+            profile = key;
+        }
+        return profile;
+    }
+
+    private boolean hasProfile(String profile) {
+        return source.hasProfile(profile);
+    }
+
+    // "Miji_Bluetooth01" -> "miji_bluetooth01", "BT-05 v1.2" -> "bt_05_v1_2"
+    static String normalise(String device_key) {
+        return device_key.trim().toLowerCase(Locale.US).replaceAll("[^a-z0-9]+", "_");
+    }
+}
@@ -0,0 +1,62 @@
+package com.bluetooth.bdsk.temperature;
+
+/**
+ * High/low temperature limits checked directly against raw sensor codes.
+ *
+ * The limits are turned into raw code boundaries once, through the reverse index of the
+ * decoder, so checking a sample is an int comparison on the value taken from the
+ * notification payload. Nothing is decoded or formatted per sample.
+ */
+public final class TemperatureAlarm {
+    // pass as a limit to leave that side unchecked
+    public static final int NO_LIMIT = Integer.MIN_VALUE;
+
+    public static final int OK = 0;
+    public static final int TOO_HOT = 1;
+    public static final int TOO_COLD = 2;
+
+    // readings with a raw code at or below hot_code are at or above the high limit
+    private final int hot_code;
+    // readings with a raw code at or above cold_code are at or below the low limit
+    private final int cold_code;
+
+    /**
+     * @param high_tenths alarm at or above this temperature, tenths of a degree Celsius, or NO_LIMIT
+     * @param low_tenths alarm at or below this temperature, tenths of a degree Celsius, or NO_LIMIT
+     */
+    public TemperatureAlarm(TemperatureDecoder decoder, int high_tenths, int low_tenths) {
+        hot_code = high_tenths == NO_LIMIT ? Integer.MIN_VALUE : decoder.lastCodeAtOrAbove(high_tenths);
+        cold_code = low_tenths == NO_LIMIT ? Integer.MAX_VALUE : decoder.firstCodeAtOrBelow(low_tenths);
+    }
+
+    // same limits given in tenths of a degree Fahrenheit
+    public static TemperatureAlarm fahrenheit(TemperatureDecoder decoder, int high_tenths, int low_tenths) {
+        // C = (F - 32) * 5 / 9, rounded so that the Celsius limit trips on the same readings
+        int high = high_tenths == NO_LIMIT ? NO_LIMIT : ceilDiv(5 * high_tenths - 1600, 9);
+        int low = low_tenths == NO_LIMIT ? NO_LIMIT : floorDiv(5 * low_tenths - 1600, 9);
+        return new TemperatureAlarm(decoder, high, low);
+    }
+
+    // OK, TOO_HOT or TOO_COLD for the raw code of a sample, see TemperatureDecoder.rawCode()
+    public int check(int raw_code) {
+        if (raw_code < 0) {
+            return OK;
+        }
+        if (raw_code <= hot_code) {
+            return TOO_HOT;
+        }
+        if (raw_code >= cold_code) {
+            return TOO_COLD;
+        }
+        return OK;
+    }
+
+    private static int floorDiv(int x, int y) {
+        int q = x / y;
+        return (x % y != 0 && x < 0) ? q - 1 : q;
+    }
+
+    private static int ceilDiv(int x, int y) {
+        return -floorDiv(-x, y);
+    }
+}
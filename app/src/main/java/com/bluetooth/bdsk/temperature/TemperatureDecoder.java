@@ -0,0 +1,156 @@
+package com.bluetooth.bdsk.temperature;
+
+import java.util.Map;
+
+/**
+ * Turns the two byte payload of the MIJI temperature characteristic into a temperature.
+ *
+ * The raw code sent by the sensor is used directly as an index into a primitive array,
+ * so decoding a sample does not create Strings, boxed values or any other garbage.
+ * Temperatures are returned as fixed point ints in tenths of a degree Celsius
+ * (e.g. -56 means -5.6C°).
+ */
+public final class TemperatureDecoder {
+    // returned for payloads which do not carry a raw code
+    public static final int NO_READING = Integer.MIN_VALUE;
+    // returned for raw codes outside the calibrated range, i.e. the sensor is hotter (OVER_RANGE)
+    // or colder (UNDER_RANGE) than anything the curve covers. Codes go down as it gets hotter.
+    public static final int OVER_RANGE = Integer.MIN_VALUE + 1;
+    public static final int UNDER_RANGE = Integer.MIN_VALUE + 2;
+
+    private final int first_code;
+    private final int[] tenths;
+
+    /**
+     * @param first_code raw code of the first entry of the table
+     * @param tenths temperature in tenths of a degree for every raw code from first_code on
+     */
+    public TemperatureDecoder(int first_code, int[] tenths) {
+        this.first_code = first_code;
+        this.tenths = tenths;
+    }
+
+    /**
+     * Builds a decoder out of a hex code -> degrees table such as TemperatureMap.getValues(),
+     * filling any code the table does not list from the calibration curve through its points.
+     * This runs once, so the String parsing cost is not paid per sample.
+     */
+    public static TemperatureDecoder fromTable(Map<String, String> table) {
+        return CalibrationCurve.fromTable(table).toDecoder();
+    }
+
+    /**
+     * Raw sensor code carried by a notification payload: the first two bytes, big-endian.
+     * Returns -1 if the payload is too short.
+     */
+    public static int rawCode(byte[] payload) {
+        return payload == null ? -1 : rawCode(payload, payload.length);
+    }
+
+    // same as above for the first length bytes of a reused buffer
+    public static int rawCode(byte[] payload, int length) {
+        if (length < 2) {
+            return -1;
+        }
+        return ((payload[0] & 0xff) << 8) | (payload[1] & 0xff);
+    }
+
+    // temperature in tenths of a degree for a notification payload, or one of the flags above
+    public int decode(byte[] payload) {
+        int raw_code = rawCode(payload);
+        if (raw_code < 0) {
+            return NO_READING;
+        }
+        return decodeRaw(raw_code);
+    }
+
+    // temperature in tenths of a degree for a raw sensor code, OVER_RANGE or UNDER_RANGE
+    public int decodeRaw(int raw_code) {
+        int index = raw_code - first_code;
+        if (index < 0) {
+            return OVER_RANGE;
+        }
+        if (index >= tenths.length) {
+            return UNDER_RANGE;
+        }
+        return tenths[index];
+    }
+
+    // false for NO_READING, OVER_RANGE and UNDER_RANGE
+    public static boolean isTemperature(int tenths) {
+        return tenths > UNDER_RANGE;
+    }
+
+    /**
+     * Reverse lookup: the highest raw code whose temperature is at least tenths.
+     * The curve is monotonic with codes going down as it gets hotter, so a reading is at
+     * or above the threshold exactly when its raw code is at or below the returned code.
+     * Returns firstCode() - 1 when no code in range is that hot.
+     */
+    public int lastCodeAtOrAbove(int tenths) {
+        int low = 0;
+        int high = this.tenths.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (this.tenths[mid] >= tenths) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return first_code + found;
+    }
+
+    /**
+     * Reverse lookup: the lowest raw code whose temperature is at most tenths. A reading is
+     * at or below the threshold exactly when its raw code is at or above the returned code.
+     * Returns lastCode() + 1 when no code in range is that cold.
+     */
+    public int firstCodeAtOrBelow(int tenths) {
+        int low = 0;
+        int high = this.tenths.length - 1;
+        int found = this.tenths.length;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (this.tenths[mid] <= tenths) {
+                found = mid;
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return first_code + found;
+    }
+
+    public int firstCode() {
+        return first_code;
+    }
+
+    public int lastCode() {
+        return first_code + tenths.length - 1;
+    }
+
+    /**
+     * Formats a value returned by decode() the way the table spells it, "-5.6" or "110".
+     * Meant for the UI, not for the per sample path.
+     */
+    public static String format(int tenths) {
+        if (tenths == NO_READING) {
+            return "not available";
+        }
+        if (tenths == OVER_RANGE) {
+            return "over range";
+        }
+        if (tenths == UNDER_RANGE) {
+            return "under range";
+        }
+        int abs = Math.abs(tenths);
+        String sign = tenths < 0 ? "-" : "";
+        if (abs % 10 == 0) {
+            return sign + (abs / 10);
+        }
+        return sign + (abs / 10) + "." + (abs % 10);
+    }
+}
@@ -0,0 +1,95 @@
+package com.bluetooth.bdsk.temperature;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Display strings of every raw code of a calibration curve, in one of the units listed in
+ * Constants.TEMPERATURE_UNITS.
+ *
+ * All strings are formatted once when the table is built, so showing a sample is a single
+ * array access with no formatting or concatenation. Tables are built per decoder and unit
+ * and kept for as long as the decoder is in use, so switching back and forth between units
+ * only pays for each table once. Building one takes a thousand small allocations and should
+ * be done off the UI thread, see cached() and get().
+ */
+public final class TemperatureDisplay {
+    // indexes into Constants.TEMPERATURE_UNITS
+    public static final int CELSIUS = 0;
+    public static final int FAHRENHEIT = 1;
+
+    private static final String[] SUFFIXES = {"C°", "F°"};
+    private static final Map<TemperatureDecoder, TemperatureDisplay[]> tables = new WeakHashMap<>();
+
+    private final int unit;
+    private final int first_code;
+    private final String[] texts;
+
+    TemperatureDisplay(TemperatureDecoder decoder, int unit) {
+        this.unit = unit;
+        this.first_code = decoder.firstCode();
+        this.texts = new String[decoder.lastCode() - first_code + 1];
+        for (int i = 0; i < texts.length; i++) {
+            int tenths = decoder.decodeRaw(first_code + i);
+            texts[i] = TemperatureDecoder.format(unit == FAHRENHEIT ? toFahrenheit(tenths) : tenths) + SUFFIXES[unit];
+        }
+    }
+
+    // the table of a decoder and unit if it has already been built, null otherwise
+    public static TemperatureDisplay cached(TemperatureDecoder decoder, int unit) {
+        synchronized (tables) {
+            TemperatureDisplay[] units = tables.get(decoder);
+            return units == null ? null : units[unit];
+        }
+    }
+
+    // the table of a decoder and unit, building it on the calling thread if needed
+    public static TemperatureDisplay get(TemperatureDecoder decoder, int unit) {
+        TemperatureDisplay display = cached(decoder, unit);
+        if (display != null) {
+            return display;
+        }
+        display = new TemperatureDisplay(decoder, unit);
+        synchronized (tables) {
+            TemperatureDisplay[] units = tables.get(decoder);
+            if (units == null) {
+                units = new TemperatureDisplay[SUFFIXES.length];
+                tables.put(decoder, units);
+            }
+            if (units[unit] == null) {
+                units[unit] = display;
+            }
+            return units[unit];
+        }
+    }
+
+    public int unit() {
+        return unit;
+    }
+
+    // display string of a raw sensor code, see TemperatureDecoder.rawCode()
+    public String text(int raw_code) {
+        if (raw_code < 0) {
+            return "not available";
+        }
+        int index = raw_code - first_code;
+        if (index < 0) {
+            return "over range";
+        }
+        if (index >= texts.length) {
+            return "under range";
+        }
+        return texts[index];
+    }
+
+    public String text(byte[] payload) {
+        return text(TemperatureDecoder.rawCode(payload));
+    }
+
+    // tenths of a degree Celsius to tenths of a degree Fahrenheit, rounded half away from zero
+    static int toFahrenheit(int tenths) {
+        int scaled = tenths * 9;
+        int rounded = scaled >= 0 ? (scaled + 2) / 5 : -((-scaled + 2) / 5);
+        return rounded + 320;
+    }
+}
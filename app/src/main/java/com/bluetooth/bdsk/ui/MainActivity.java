@@ -3,6 +3,7 @@ package com.bluetooth.bdsk.ui;
 import android.Manifest;
 import android.app.AlertDialog;
 import android.bluetooth.BluetoothDevice;
+import android.bluetooth.le.ScanResult;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.pm.PackageManager;
@@ -32,9 +33,14 @@ import android.widget.Toast;
 import com.bluetooth.bdsk.Constants;
 import com.bluetooth.bdsk.R;
 import com.bluetooth.bdsk.bluetooth.BleScanner;
+import com.bluetooth.bdsk.bluetooth.DeviceRegistry;
 import com.bluetooth.bdsk.bluetooth.ScanResultsConsumer;
+import com.bluetooth.bdsk.temperature.Calibration;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * MainActivity needs to implement the ScanResultsConsumer so that it can receive and process data
@@ -45,12 +51,15 @@ public class MainActivity extends AppCompatActivity implements ScanResultsConsum
     private boolean ble_scanning = false;
     private Handler handler = new Handler();
     private ListAdapter ble_device_list_adapter;
+    private ListView device_list_view;
+    // every device seen while scanning, the list shows what it publishes
+    private DeviceRegistry device_registry;
     private BleScanner ble_scanner;
-    private static final long SCAN_TIMEOUT = 5000;
+    // advertisements are collected by the controller and handed over this often
+    private static final long SCAN_REPORT_DELAY_MS = 1000;
     private static final int REQUEST_LOCATION = 0;
     private static String[] PERMISSIONS_LOCATION = {Manifest.permission.ACCESS_COARSE_LOCATION};
     private boolean permissions_granted = false;
-    private int device_count = 0;
     private Toast toast;
 
     static class ViewHolder {
@@ -61,21 +70,28 @@ public class MainActivity extends AppCompatActivity implements ScanResultsConsum
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // build the temperature calibration table off the main thread while the user scans
+        Calibration.prefetch();
         setContentView(R.layout.activity_main);
 
         setButtonText();
         ble_device_list_adapter = new ListAdapter();
-        ListView listView = this.findViewById(R.id.deviceList);
-        listView.setAdapter(ble_device_list_adapter);
+        device_list_view = this.findViewById(R.id.deviceList);
+        device_list_view.setAdapter(ble_device_list_adapter);
+        device_registry = new DeviceRegistry(handler, DeviceRegistry.DEFAULT_STALE_MS, ble_device_list_adapter);
         ble_scanner = new BleScanner(this.getApplicationContext());
+        ble_scanner.setReportDelay(SCAN_REPORT_DELAY_MS);
 
-        listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+        device_list_view.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             @Override
             public void onItemClick(AdapterView<?> parent, View view,
                                     int position, long id) {
                 if (ble_scanning) {
                     setScanState(false);
+                }
+                if (ble_scanner.isScanning()) {
                     ble_scanner.stopScanning();
+                    device_registry.stop();
                 }
                 BluetoothDevice device = ble_device_list_adapter.getDevice(position);
                 if (toast != null) {
@@ -113,22 +129,54 @@ public class MainActivity extends AppCompatActivity implements ScanResultsConsum
         ((Button) this.findViewById(R.id.scanButton)).setText(value ? Constants.STOP_SCANNING : Constants.FIND);
     }
 
-    private class ListAdapter extends BaseAdapter {
-        private ArrayList<BluetoothDevice> ble_devices;
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (ble_scanner.isScanning()) {
+            ble_scanner.stopScanning();
+        }
+        device_registry.stop();
+        device_registry.clear();
+    }
+
+    /**The rows follow the diffs of the DeviceRegistry: only added or removed devices change
+     * the list, an updated one just has its row redrawn if it is on screen*/
+    private class ListAdapter extends BaseAdapter implements DeviceRegistry.Listener {
+        private ArrayList<DeviceRegistry.Entry> ble_devices;
 
         public ListAdapter() {
             super();
-            ble_devices = new ArrayList<BluetoothDevice>();
+            ble_devices = new ArrayList<DeviceRegistry.Entry>();
         }
 
-        public void addDevice(BluetoothDevice device) {
-            if (!ble_devices.contains(device)) {
-                ble_devices.add(device);
+        @Override
+        public void onDevicesChanged(List<DeviceRegistry.Entry> added, List<DeviceRegistry.Entry> updated,
+                                     List<DeviceRegistry.Entry> removed) {
+            if (!removed.isEmpty()) {
+                Set<DeviceRegistry.Entry> gone = new HashSet<>(removed);
+                for (int i = ble_devices.size() - 1; i >= 0; i--) {
+                    if (gone.contains(ble_devices.get(i))) {
+                        ble_devices.remove(i);
+                    }
+                }
+            }
+            ble_devices.addAll(added);
+            if (!added.isEmpty() || !removed.isEmpty()) {
+                notifyDataSetChanged();
+                return;
+            }
+            Set<DeviceRegistry.Entry> changed = new HashSet<>(updated);
+            int first = device_list_view.getFirstVisiblePosition();
+            for (int i = 0; i < device_list_view.getChildCount(); i++) {
+                int position = first + i;
+                if (position < ble_devices.size() && changed.contains(ble_devices.get(position))) {
+                    getView(position, device_list_view.getChildAt(i), device_list_view);
+                }
             }
         }
 
         public BluetoothDevice getDevice(int position) {
-            return ble_devices.get(position);
+            return ble_devices.get(position).device;
         }
 
         public void clear() {
@@ -162,21 +210,20 @@ public class MainActivity extends AppCompatActivity implements ScanResultsConsum
             } else {
                 viewHolder = (ViewHolder) view.getTag();
             }
-            BluetoothDevice device = ble_devices.get(i);
-            String deviceName = device.getName();
+            DeviceRegistry.Entry entry = ble_devices.get(i);
+            String deviceName = entry.device.getName();
             if (deviceName != null && deviceName.length() > 0) {
                 viewHolder.text.setText(deviceName);
             } else {
                 viewHolder.text.setText("unknown device");
             }
-            viewHolder.bdaddr.setText(device.getAddress());
+            viewHolder.bdaddr.setText(entry.address + "  " + Math.round(entry.rssi()) + "dBm");
             return view;
         }
     }
 
     public void onScan(View view) {
         if (!ble_scanner.isScanning()) {
-            device_count = 0;
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
                 if (checkSelfPermission(Manifest.permission.ACCESS_COARSE_LOCATION)
                         != PackageManager.PERMISSION_GRANTED) {
@@ -193,6 +240,7 @@ public class MainActivity extends AppCompatActivity implements ScanResultsConsum
             startScanning();
         } else {
             ble_scanner.stopScanning();
+            device_registry.stop();
         }
     }
 
@@ -247,27 +295,31 @@ public class MainActivity extends AppCompatActivity implements ScanResultsConsum
             runOnUiThread(new Runnable() {
                 @Override
                 public void run() {
+                    device_registry.clear();
                     ble_device_list_adapter.clear();
                     ble_device_list_adapter.notifyDataSetChanged();
                 }
             });
             simpleToast(Constants.SCANNING, 2000);
-            ble_scanner.startScanning(this, SCAN_TIMEOUT);
+            // scans until stopped, devices that went away drop off the list
+            device_registry.start();
+            ble_scanner.startContinuousScanning(this, BleScanner.DEFAULT_BURST_MS, BleScanner.DEFAULT_LOW_POWER_MS);
         } else {
             Log.i(Constants.TAG, "Permission to perform Bluetooth scanning was not yet granted");
         }
     }
 
+    // ScanCallback is delivered on the main looper, the registry's thread, so no posting is needed
     @Override
-    public void candidateBleDevice(final BluetoothDevice device, byte[] scan_record, int rssi) {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                ble_device_list_adapter.addDevice(device);
-                ble_device_list_adapter.notifyDataSetChanged();
-                device_count++;
-            }
-        });
+    public void candidateBleDevice(BluetoothDevice device, byte[] scan_record, int rssi) {
+        device_registry.record(device, rssi);
+    }
+
+    @Override
+    public void candidateBleDevices(List<ScanResult> results) {
+        for (ScanResult result : results) {
+            device_registry.record(result.getDevice(), result.getRssi());
+        }
     }
 
     @Override
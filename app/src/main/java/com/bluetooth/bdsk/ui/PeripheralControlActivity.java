@@ -3,6 +3,7 @@ package com.bluetooth.bdsk.ui;
 import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothGattDescriptor;
 import android.bluetooth.BluetoothGattService;
@@ -12,8 +13,10 @@ import android.content.ServiceConnection;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
 import android.os.Message;
+import android.os.SystemClock;
 import android.support.annotation.Nullable;
 import android.util.Log;
 import android.view.View;
@@ -24,24 +27,61 @@ import android.widget.Switch;
 import android.widget.TextView;
 
 import com.bluetooth.bdsk.Constants;
+import com.bluetooth.bdsk.HexCodec;
 import com.bluetooth.bdsk.R;
-import com.bluetooth.bdsk.TemperatureMap;
 import com.bluetooth.bdsk.bluetooth.BleAdapterService;
-
+import com.bluetooth.bdsk.bluetooth.GattBatchRead;
+import com.bluetooth.bdsk.bluetooth.GattFuture;
+import com.bluetooth.bdsk.bluetooth.GattHandle;
+import com.bluetooth.bdsk.bluetooth.LinkProfile;
+import com.bluetooth.bdsk.bluetooth.ReadingEvent;
+import com.bluetooth.bdsk.bluetooth.ReadingRingBuffer;
+import com.bluetooth.bdsk.bluetooth.ReadingSubscription;
+import com.bluetooth.bdsk.proximity.ProximityEstimator;
+import com.bluetooth.bdsk.temperature.Calibration;
+import com.bluetooth.bdsk.temperature.CalibrationRegistry;
+import com.bluetooth.bdsk.temperature.TemperatureAlarm;
+import com.bluetooth.bdsk.temperature.TemperatureDecoder;
+import com.bluetooth.bdsk.temperature.TemperatureDisplay;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 
 public class PeripheralControlActivity extends Activity{
     public static final String EXTRA_NAME = "name";
     public static final String EXTRA_ID = "id";
+    // optional temperature alarm limits, in tenths of a degree Celsius
+    public static final String EXTRA_ALARM_HIGH = "alarm_high";
+    public static final String EXTRA_ALARM_LOW = "alarm_low";
     private BleAdapterService bluetooth_le_adapter;
-    private TemperatureMap temperatureMapper = new TemperatureMap();
+    private TemperatureDecoder temperature_decoder;
+    // also read on the alarm thread
+    private volatile TemperatureAlarm temperature_alarm;
+    private int alarm_high;
+    private int alarm_low;
+    private int alarm_state = TemperatureAlarm.OK;
+    private int temperature_unit = TemperatureDisplay.CELSIUS;
+    private TemperatureDisplay temperature_display;
+    private int last_raw_code = -1;
+    private TextView temperature_view;
+    // resolved once per service discovery, see BleAdapterService.getHandle(), read on the alarm thread too
+    private volatile GattHandle temperature_handle;
+    private volatile GattHandle temp_char_2_handle;
+    private ReadingSubscription display_subscription;
+    private ReadingSubscription alarm_subscription;
+    // the alarm sees every sample, kept off the main thread so a busy screen does not hold it up
+    private HandlerThread alarm_thread;
+    private Handler alarm_handler;
+    // filtered rssi of the device, the rectangle only changes colour with its band
+    private final ProximityEstimator proximity = new ProximityEstimator();
+    private String rssi_text;
 
     //class variables
     private String device_name;
     private String device_address;
-    private Timer mTimer;
+    private String device_model;
+    private String device_firmware;
     private boolean sound_alarm_on_disconnect = false;
     private int alert_level;
     private boolean back_requested = false;
@@ -58,6 +98,19 @@ public class PeripheralControlActivity extends Activity{
         final Intent intent = getIntent();
         device_name = intent.getStringExtra(EXTRA_NAME);
         device_address = intent.getStringExtra(EXTRA_ID);
+        alarm_high = intent.getIntExtra(EXTRA_ALARM_HIGH, TemperatureAlarm.NO_LIMIT);
+        alarm_low = intent.getIntExtra(EXTRA_ALARM_LOW, TemperatureAlarm.NO_LIMIT);
+
+        // pick the curve by device name until the Device Information strings have been read.
+        // The default table is shared per process and normally already built by MainActivity
+        long wait_start = System.nanoTime();
+        temperature_decoder = CalibrationRegistry.shared().decoderFor(device_name, null, null);
+        Log.d(Constants.TAG, "calibration table: waited " + (System.nanoTime() - wait_start) / 1000
+                + "us on the main thread, built in " + Calibration.buildTimeNanos() / 1000 + "us");
+        setupAlarm();
+        temperature_view = (TextView) this.findViewById(R.id.temperatureValue);
+        ((Button) this.findViewById(R.id.unitButton)).setText(Constants.TEMPERATURE_UNITS[temperature_unit]);
+        loadDisplay();
 
         // show the device name
         String concatName = "Device : "+device_name+" ["+device_address+"]";
@@ -68,23 +121,22 @@ public class PeripheralControlActivity extends Activity{
         temperature_switch.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
             public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
                 // TODO: 05/11/2019
-                if (bluetooth_le_adapter != null && bluetooth_le_adapter.isConnected()) {
+                if (bluetooth_le_adapter != null && bluetooth_le_adapter.isConnected(device_address)) {
                     if (!isChecked) {
                         showMsg("Switching off temperature monitoring");
-                        if (bluetooth_le_adapter.setIndicationsState(
-                                Constants.miji_TEMPERATURE_SERVICE,
-                                Constants.miji_TEMPERATURE_SERVICE_CHAR_1,
-                                false)) {
+                        if (temperature_handle != null
+                                && bluetooth_le_adapter.setIndicationsState(temperature_handle, false)) {
+                            bluetooth_le_adapter.setLinkProfile(device_address, LinkProfile.BALANCED);
                             clearTemperature();
                         } else {
                             showMsg("Failed to inform temperature monitoring has been disabled");
                         }
                     } else {
                         showMsg("Switching on temperature monitoring");
-                        if (bluetooth_le_adapter.setIndicationsState(
-                                Constants.miji_TEMPERATURE_SERVICE,
-                                Constants.miji_TEMPERATURE_SERVICE_CHAR_1,
-                                true)) {
+                        // a short connection interval while the temperature is streamed live
+                        bluetooth_le_adapter.setLinkProfile(device_address, LinkProfile.HIGH);
+                        if (temperature_handle != null
+                                && bluetooth_le_adapter.setIndicationsState(temperature_handle, true)) {
                         } else {
                             showMsg("Failed to inform temperature monitoring has been enabled");
                         }
@@ -119,6 +171,10 @@ public class PeripheralControlActivity extends Activity{
             }
         });
 
+        alarm_thread = new HandlerThread("temperature_alarm");
+        alarm_thread.start();
+        alarm_handler = new Handler(alarm_thread.getLooper());
+
         // connect to the Bluetooth adapter service
         Intent gattServiceIntent = new Intent(this, BleAdapterService.class);
         bindService(gattServiceIntent, service_connection, BIND_AUTO_CREATE);
@@ -128,9 +184,15 @@ public class PeripheralControlActivity extends Activity{
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        stopTimer();
+        if (bluetooth_le_adapter != null) {
+            bluetooth_le_adapter.stopRssiSampling(device_address);
+            bluetooth_le_adapter.removeActivityHandler(message_handler);
+            bluetooth_le_adapter.unsubscribe(display_subscription);
+            bluetooth_le_adapter.unsubscribe(alarm_subscription);
+        }
         unbindService(service_connection);
         bluetooth_le_adapter = null;
+        alarm_thread.quit();
     }
 
     private void showMsg(final String msg) {
@@ -147,7 +209,11 @@ public class PeripheralControlActivity extends Activity{
         @Override
         public void onServiceConnected(ComponentName componentName, IBinder service) {
             bluetooth_le_adapter = ((BleAdapterService.LocalBinder) service).getService();
-            bluetooth_le_adapter.setActivityHandler(message_handler);
+            bluetooth_le_adapter.addActivityHandler(message_handler);
+            display_subscription = bluetooth_le_adapter.subscribe(device_address,
+                    ReadingSubscription.LATEST, 0, message_handler, display_consumer);
+            alarm_subscription = bluetooth_le_adapter.subscribe(device_address,
+                    ReadingSubscription.EVERY_EVENT, 0, alarm_handler, alarm_consumer);
         }
 
         @Override
@@ -165,6 +231,12 @@ public class PeripheralControlActivity extends Activity{
             String characteristic_uuid = "";
             byte[] b = null;
 
+            // the service may be connected to other devices too, only listen to ours
+            String address = msg.getData().getString(BleAdapterService.PARCEL_DEVICE_ADDRESS);
+            if (address != null && !address.equals(device_address)) {
+                return;
+            }
+
             //Message handling logic
             switch (msg.what){
                 case BleAdapterService.MESSAGE:
@@ -189,7 +261,28 @@ public class PeripheralControlActivity extends Activity{
                     // ((Button) PeripheralControlActivity.this.findViewById(R.id.midButton)).setEnabled(true);
                     // ((Button) PeripheralControlActivity.this.findViewById(R.id.highButton)).setEnabled(true);
 
-                    bluetooth_le_adapter.discoverServices();
+                    // the service discovers the services by itself, on every (re)connection
+                    break;
+                case BleAdapterService.GATT_LINK_CHANGED:
+                    bundle = msg.getData();
+                    Log.d(Constants.TAG, "link profile " + LinkProfile.NAMES[bundle.getInt(BleAdapterService.PARCEL_LINK_PROFILE)]
+                            + ", MTU " + bundle.getInt(BleAdapterService.PARCEL_MTU));
+                    break;
+                case BleAdapterService.GATT_STATE_CHANGED:
+                    bundle = msg.getData();
+                    int state = bundle.getInt(BleAdapterService.PARCEL_STATE);
+                    showMsg(BleAdapterService.STATE_NAMES[state]);
+                    if (bundle.containsKey(BleAdapterService.PARCEL_RECOVERY_MS)) {
+                        showMsg("reconnected after " + bundle.getLong(BleAdapterService.PARCEL_RECOVERY_MS) + "ms");
+                    }
+                    if (state == BleAdapterService.STATE_BACKOFF) {
+                        // the link is gone until the service reconnects, the indications are re-armed then
+                        bluetooth_le_adapter.stopRssiSampling(device_address);
+                        proximity.reset();
+                        ((LinearLayout) PeripheralControlActivity.this
+                                .findViewById(R.id.rectangle))
+                                .setVisibility(View.INVISIBLE);
+                    }
                     break;
                 case BleAdapterService.GATT_DISCONNECT:
                     ((Button) PeripheralControlActivity.this.findViewById(R.id.connectButton)).setEnabled(true);
@@ -211,8 +304,10 @@ public class PeripheralControlActivity extends Activity{
                     ((Button) PeripheralControlActivity.this.findViewById(R.id.midButton)).setEnabled(false);
                     ((Button) PeripheralControlActivity.this.findViewById(R.id.highButton)).setEnabled(false);
 
-                    // stop the rssi reading timer
-                    stopTimer();
+                    // the service already stopped sampling the rssi
+                    proximity.reset();
+                    temperature_handle = null;
+                    temp_char_2_handle = null;
 
                     //takes into account that the user has pressed the back button and
                     // completes the process of exiting the current screen:
@@ -223,7 +318,7 @@ public class PeripheralControlActivity extends Activity{
 
                 case BleAdapterService.GATT_SERVICES_DISCOVERED:
                     //Validate services and if ok...
-                    List<BluetoothGattService> services_list = bluetooth_le_adapter.getSupportedGattServices();
+                    List<BluetoothGattService> services_list = bluetooth_le_adapter.getSupportedGattServices(device_address);
                     boolean miji_device_information=false;
                     boolean miji_generic_access=false;
                     boolean miji_generic_attribute=false;
@@ -263,6 +358,10 @@ public class PeripheralControlActivity extends Activity{
                     }
                     if (miji_device_information && miji_generic_access && miji_generic_attribute && miji_service_uuid) {
                         showMsg("Device has expected services");
+                        temperature_handle = bluetooth_le_adapter.getHandle(device_address,
+                                Constants.miji_TEMPERATURE_SERVICE, Constants.miji_TEMPERATURE_SERVICE_CHAR_1);
+                        temp_char_2_handle = bluetooth_le_adapter.getHandle(device_address,
+                                Constants.miji_TEMPERATURE_SERVICE, Constants.miji_TEMPERATURE_SERVICE_CHAR_2);
 
                         /*
                         // enable the LOW/MID/HIGH alert level selection buttons
@@ -273,44 +372,24 @@ public class PeripheralControlActivity extends Activity{
                         /**After service discovery has completed and we’ve validated the services on the device,
                          * we’ll read the characteristics
                         bluetooth_le_adapter.readCharacteristic(
+                                device_address,
                                 Constants.eLINK_LOSS_SERVICE_UUID,
                                 Constants.eALERT_LEVEL_CHARACTERISTIC);*/
+
+                        // model and firmware tell us which probe batch, hence which curve, this is.
+                        // Both are read in one batch, answered on the main thread
+                        bluetooth_le_adapter.readBatchAsync(device_address, DEVICE_INFORMATION_READS)
+                                .addCallback(device_information_read, message_handler);
                     } else {
                         showMsg("Device does not have expected GATT services");
                     }
                     break;
 
-                case BleAdapterService.NOTIFICATION_OR_INDICATION_RECEIVED:
-
-                    bundle = msg.getData();
-                    service_uuid = bundle.getString(BleAdapterService.PARCEL_SERVICE_UUID);
-                    characteristic_uuid = bundle.getString(BleAdapterService.PARCEL_CHARACTERISTIC_UUID);
-                    b = bundle.getByteArray(BleAdapterService.PARCEL_VALUE);
-
-                    if (characteristic_uuid.equalsIgnoreCase((Constants.miji_TEMPERATURE_SERVICE_CHAR_1))) {
-                        Log.d(Constants.TAG, "Handling bundle temp_serv_char_1");
-                        String temperatureKey = byteArrayAsHexString(b).trim().toLowerCase();
-                        String temperatureValue = temperatureMapper.getValues().get(temperatureKey);
-                        Log.d(Constants.TAG, "temperature key: " + temperatureKey + " is " + temperatureValue);
-                        showTemperature(temperatureValue);
-
-                    }
-                    if (characteristic_uuid.equalsIgnoreCase((Constants.miji_TEMPERATURE_SERVICE_CHAR_2))) {
-                        Log.d(Constants.TAG, "Handling bundle temp_serv_char_2");
-                        Log.d(Constants.TAG,"bundle as byte array " + b);
-                        Log.d(Constants.TAG, "bundle as String " + byteArrayAsHexString(b));
-                        Log.d(Constants.TAG, "bundle length:" + b.length);
-                    }
-                    break;
-
                 case BleAdapterService.GATT_CHARACTERISTIC_READ:
                     bundle = msg.getData();
                     Log.d(Constants.TAG, "Service=" + bundle.get(BleAdapterService.PARCEL_SERVICE_UUID).toString().toUpperCase() + " Characteristic=" + bundle.get(BleAdapterService.PARCEL_CHARACTERISTIC_UUID).toString().toUpperCase());
-
-                    /**ATTEMPT TO READ RSSI VALUE*/
-                    // show the rssi distance colored rectangle
-                    ((LinearLayout) PeripheralControlActivity.this.findViewById(R.id.rectangle)).setVisibility(View.VISIBLE);
-                    startReadRssiTimer();
+                    characteristic_uuid = bundle.getString(BleAdapterService.PARCEL_CHARACTERISTIC_UUID);
+                    b = bundle.getByteArray(BleAdapterService.PARCEL_VALUE);
                     break;
 
                 case BleAdapterService.GATT_REMOTE_RSSI:
@@ -322,6 +401,33 @@ public class PeripheralControlActivity extends Activity{
         }
     };
 
+    //the screen only needs the newest value, a busy main thread skips stale ones
+    private final ReadingRingBuffer.Consumer display_consumer = new ReadingRingBuffer.Consumer() {
+        @Override
+        public void onReading(ReadingEvent event) {
+            if (temperature_handle != null && event.characteristicId() == temperature_handle.id) {
+                //the raw code indexes straight into the display table, no hex String needed
+                last_raw_code = TemperatureDecoder.rawCode(event.value(), event.length());
+                showTemperature(last_raw_code);
+            }
+        }
+    };
+
+    //the alarm looks at every sample, so a short excursion is not missed. Runs on alarm_thread
+    private final ReadingRingBuffer.Consumer alarm_consumer = new ReadingRingBuffer.Consumer() {
+        @Override
+        public void onReading(ReadingEvent event) {
+            if (temperature_handle != null && event.characteristicId() == temperature_handle.id) {
+                if (temperature_alarm != null) {
+                    checkAlarm(temperature_alarm.check(TemperatureDecoder.rawCode(event.value(), event.length())));
+                }
+            } else if (temp_char_2_handle != null && event.characteristicId() == temp_char_2_handle.id) {
+                Log.d(Constants.TAG, "Handling temp_serv_char_2, length:" + event.length()
+                        + " value " + HexCodec.toHexString(Arrays.copyOf(event.value(), event.length())));
+            }
+        }
+    };
+
     /**Bluetooth Connection button
      * */
     public void onConnect(View view) {
@@ -346,9 +452,10 @@ public class PeripheralControlActivity extends Activity{
     public void onBackPressed() {
         Log.d(Constants.TAG, "onBackPressed");
         back_requested = true;
-        if (bluetooth_le_adapter.isConnected()) {
+        // also stops a reconnection in progress
+        if (bluetooth_le_adapter.getState(device_address) != BleAdapterService.STATE_DISCONNECTED) {
             try {
-                bluetooth_le_adapter.disconnect();
+                bluetooth_le_adapter.disconnect(device_address);
             } catch (Exception e) {
             }
         } else {
@@ -393,7 +500,7 @@ public class PeripheralControlActivity extends Activity{
             Log.d(Constants.TAG, "--->  " + characteristic.toString());
             Log.d(Constants.TAG, "temp char uuid: " + characteristic.getUuid());
             try{
-                Log.d(Constants.TAG, "--->  " + byteArrayAsHexString(characteristic.getValue()));
+                Log.d(Constants.TAG, "--->  " + HexCodec.toHexString(characteristic.getValue()));
             }
             catch (Exception e){
                 Log.d(Constants.TAG, "--->  " + "nullPointerException caught");
@@ -408,7 +515,7 @@ public class PeripheralControlActivity extends Activity{
         if(!descriptors.isEmpty()){
             for(BluetoothGattDescriptor descriptor : descriptors){
                 try{
-                    Log.d(Constants.TAG, "--->  " + byteArrayAsHexString(descriptor.getValue()));
+                    Log.d(Constants.TAG, "--->  " + HexCodec.toHexString(descriptor.getValue()));
                 }
                 catch (Exception e){
                     Log.d(Constants.TAG, "--->  " + "nullPointerException caught");
@@ -421,69 +528,174 @@ public class PeripheralControlActivity extends Activity{
     }
 
 
-    private void showTemperature(final String temperature) {
-        runOnUiThread(new Runnable() {
+    //called on the main thread by the message handler, the string comes ready made from the display table
+    private void showTemperature(int raw_code) {
+        if (temperature_display != null) {
+            temperature_view.setText(temperature_display.text(raw_code));
+        } else {
+            // only until the first display table is ready
+            int tenths = raw_code < 0 ? TemperatureDecoder.NO_READING : temperature_decoder.decodeRaw(raw_code);
+            temperature_view.setText(TemperatureDecoder.isTemperature(tenths)
+                    ? TemperatureDecoder.format(tenths) + "C°"
+                    : TemperatureDecoder.format(tenths));
+        }
+    }
+
+    /**Unit button, cycles through Constants.TEMPERATURE_UNITS*/
+    public void onUnit(View view) {
+        temperature_unit = (temperature_unit + 1) % Constants.TEMPERATURE_UNITS.length;
+        ((Button) view).setText(Constants.TEMPERATURE_UNITS[temperature_unit]);
+        loadDisplay();
+    }
+
+    /**Switch to the display table of the current curve and unit. Tables which have not been
+     * built yet are built on a background thread, the old one stays on screen meanwhile*/
+    private void loadDisplay() {
+        final TemperatureDecoder decoder = temperature_decoder;
+        final int unit = temperature_unit;
+        TemperatureDisplay display = TemperatureDisplay.cached(decoder, unit);
+        if (display != null) {
+            setDisplay(display);
+            return;
+        }
+        new Thread(new Runnable() {
             @Override
             public void run() {
-                String temperatureString = temperature + "C°";
-                ((TextView) findViewById(R.id.temperatureValue)).setText(temperatureString);
+                final TemperatureDisplay built = TemperatureDisplay.get(decoder, unit);
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        // the user may have switched again while we were building
+                        if (decoder == temperature_decoder && unit == temperature_unit) {
+                            setDisplay(built);
+                        }
+                    }
+                });
             }
-        });
+        }, "temperature-display").start();
     }
 
-    public static String byteArrayAsHexString(byte[] bytes) {
-        if (bytes == null) {
-            return "[null]";
+    private void setDisplay(TemperatureDisplay display) {
+        temperature_display = display;
+        if (last_raw_code >= 0) {
+            showTemperature(last_raw_code);
         }
-        int l = bytes.length;
-        StringBuffer hex = new StringBuffer();
-        for (int i = 0; i < l; i++) {
-            if ((bytes[i] >= 0) & (bytes[i] < 16))
-                hex.append("0");
-            hex.append(Integer.toString(bytes[i] & 0xff, 16).toUpperCase());
-        }
-        return hex.toString();
     }
 
-    private void startReadRssiTimer() {
-        mTimer = new Timer();
-        mTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                bluetooth_le_adapter.readRemoteRssi();
+    private static final String[][] DEVICE_INFORMATION_READS = {
+            {Constants.miji_DEVICE_INFORMATION, Constants.MODEL_NUMBER_CHARACTERISTIC},
+            {Constants.miji_DEVICE_INFORMATION, Constants.FIRMWARE_REVISION_CHARACTERISTIC},
+            // calibrates the distance estimate, most probes do not have it
+            {Constants.TX_POWER_SERVICE_UUID, Constants.TX_POWER_LEVEL_CHARACTERISTIC}};
+
+    private final GattFuture.Callback<GattBatchRead> device_information_read = new GattFuture.Callback<GattBatchRead>() {
+        @Override
+        public void onComplete(GattFuture<GattBatchRead> future) {
+            // once per discovery, whatever the batch read, so the TX power is in if there is one
+            startProximity();
+            GattBatchRead batch;
+            try {
+                batch = future.get();
+            } catch (Exception e) {
+                Log.d(Constants.TAG, "device information read failed: " + e);
+                return;
+            }
+            Log.d(Constants.TAG, "device information read in " + batch.elapsedNanos() / 1000 + "us");
+            // whatever is missing is left null, the registry then falls back on the device name
+            device_model = deviceInformationString(batch, 0);
+            device_firmware = deviceInformationString(batch, 1);
+            byte[] tx_power = batch.status(2) == BluetoothGatt.GATT_SUCCESS ? batch.value(2) : null;
+            if (tx_power != null && tx_power.length > 0) {
+                // signed dBm
+                proximity.setTxPower(tx_power[0]);
             }
-        }, 0, 2000);
+            selectCalibration();
+        }
+    };
+
+    // show the rssi distance colored rectangle and start sampling the rssi
+    private void startProximity() {
+        if (bluetooth_le_adapter == null) {
+            return;
+        }
+        ((LinearLayout) findViewById(R.id.rectangle)).setVisibility(View.VISIBLE);
+        bluetooth_le_adapter.startRssiSampling(device_address);
+    }
+
+    private static String deviceInformationString(GattBatchRead batch, int index) {
+        if (batch.status(index) != BluetoothGatt.GATT_SUCCESS) {
+            Log.d(Constants.TAG, "no " + batch.characteristicUuid(index) + ", status " + batch.status(index));
+            return null;
+        }
+        byte[] value = batch.value(index);
+        // a successful read may still come without a value
+        return value == null ? null : new String(value, Charset.forName("UTF-8")).trim();
     }
 
-    private void stopTimer() {
-        if (mTimer != null) {
-            mTimer.cancel();
-            mTimer = null;
+    /**Resolve the calibration curve of this probe once, so the notification path just uses
+     * the decoder it is given*/
+    private void selectCalibration() {
+        temperature_decoder = CalibrationRegistry.shared().decoderFor(device_name, device_model, device_firmware);
+        Log.d(Constants.TAG, "calibration profile for " + device_name + " model=" + device_model
+                + " firmware=" + device_firmware + ": "
+                + CalibrationRegistry.shared().profileFor(device_name, device_model, device_firmware));
+        setupAlarm();
+        loadDisplay();
+    }
+
+    /**The alarm limits are translated into raw code boundaries of the current curve, so the
+     * check on every sample is a comparison on the raw code*/
+    private void setupAlarm() {
+        if (alarm_high == TemperatureAlarm.NO_LIMIT && alarm_low == TemperatureAlarm.NO_LIMIT) {
+            temperature_alarm = null;
+            return;
         }
+        temperature_alarm = new TemperatureAlarm(temperature_decoder, alarm_high, alarm_low);
     }
 
-    //Change the color of the rectangle
+    //only tell the user when the reading crosses a limit, not on every sample
+    private void checkAlarm(int state) {
+        if (state == alarm_state) {
+            return;
+        }
+        alarm_state = state;
+        if (state == TemperatureAlarm.TOO_HOT) {
+            showMsg("ALARM: temperature at or above " + TemperatureDecoder.format(alarm_high) + "C°");
+        } else if (state == TemperatureAlarm.TOO_COLD) {
+            showMsg("ALARM: temperature at or below " + TemperatureDecoder.format(alarm_low) + "C°");
+        } else {
+            showMsg("Temperature back within limits");
+        }
+    }
+
+    //Change the color of the rectangle, only when the filtered distance moved to another band
     private void updateRssi(int rssi) {
-        String str_RSSI = "RSSI = " + rssi;
-        ((TextView) findViewById(R.id.rssiTextView)).setText(str_RSSI);
+        boolean band_changed = proximity.update(rssi, SystemClock.elapsedRealtime());
+        String str_RSSI = "RSSI = " + Math.round(proximity.rssi());
+        if (!str_RSSI.equals(rssi_text)) {
+            rssi_text = str_RSSI;
+            ((TextView) findViewById(R.id.rssiTextView)).setText(str_RSSI);
+        }
+        if (!band_changed) {
+            return;
+        }
+        Log.d(Constants.TAG, device_address + " proximity band " + proximity.band()
+                + ", about " + proximity.distanceMeters() + "m");
         LinearLayout layout = ((LinearLayout) PeripheralControlActivity.this.findViewById(R.id.rectangle));
-        byte proximity_band = 3;
-        if (rssi < -80) {
+        if (proximity.band() == ProximityEstimator.FAR) {
             layout.setBackgroundColor(0xFFFF0000);
-        } else if (rssi < -50) {
+        } else if (proximity.band() == ProximityEstimator.MEDIUM) {
             layout.setBackgroundColor(0xFFFF8A01);
-            proximity_band = 2;
         } else {
             layout.setBackgroundColor(0xFF00FF00);
-            proximity_band = 1;
         }
-        layout.invalidate();
     }
 
     private void clearTemperature() {
         runOnUiThread(new Runnable() {
             @Override
             public void run() {
+                last_raw_code = -1;
                 ((TextView) findViewById(R.id.temperatureValue)).setText("not available");
             }
         });
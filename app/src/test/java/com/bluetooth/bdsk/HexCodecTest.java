@@ -0,0 +1,63 @@
+package com.bluetooth.bdsk;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+public class HexCodecTest {
+    @Test
+    public void encodesUpperCaseWithoutSeparators() {
+        assertEquals("048C", HexCodec.toHexString(new byte[]{0x04, (byte) 0x8c}));
+        assertEquals("00FF7F80", HexCodec.toHexString(new byte[]{0, -1, 0x7f, (byte) 0x80}));
+        assertEquals("", HexCodec.toHexString(new byte[0]));
+        assertEquals("[null]", HexCodec.toHexString(null));
+    }
+
+    @Test
+    public void roundTripsEveryByte() {
+        byte[] all = new byte[256];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = (byte) i;
+        }
+        assertArrayEquals(all, HexCodec.decode(HexCodec.toHexString(all)));
+        assertArrayEquals(all, HexCodec.decode(HexCodec.toHexString(all).toLowerCase()));
+    }
+
+    @Test
+    public void encodesIntoCallerBuffers() {
+        byte[] src = {0x11, 0x22, 0x33};
+        char[] chars = {'x', 'x', 'x', 'x', 'x', 'x'};
+        assertEquals(4, HexCodec.encode(src, 1, 2, chars, 1));
+        assertEquals("x2233x", new String(chars));
+
+        ByteBuffer bytes = ByteBuffer.allocate(8);
+        bytes.put((byte) '>');
+        assertEquals(6, HexCodec.encode(src, 0, 3, bytes));
+        assertEquals(">112233", new String(bytes.array(), 0, bytes.position(), Charset.forName("US-ASCII")));
+    }
+
+    @Test
+    public void decodesIntoCallerBuffers() {
+        byte[] dst = new byte[4];
+        assertEquals(2, HexCodec.decode("a0Fe", dst, 1));
+        assertArrayEquals(new byte[]{0, (byte) 0xa0, (byte) 0xfe, 0}, dst);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOddLength() {
+        HexCodec.decode("048");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonHexDigits() {
+        HexCodec.decode("0G");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonAsciiDigits() {
+        HexCodec.decode("0\u0660");
+    }
+}
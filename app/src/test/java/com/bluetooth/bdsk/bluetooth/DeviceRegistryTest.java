@@ -0,0 +1,162 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import android.bluetooth.BluetoothDevice;
+import android.os.Handler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DeviceRegistryTest {
+    private static final long STALE_MS = 30000;
+
+    // every diff the listener got, as {added, updated, removed}
+    private final List<List<List<DeviceRegistry.Entry>>> diffs = new ArrayList<>();
+    private Handler handler;
+    private DeviceRegistry registry;
+
+    @Before
+    public void setUp() {
+        handler = mock(Handler.class);
+        registry = new DeviceRegistry(handler, STALE_MS, new DeviceRegistry.Listener() {
+            @Override
+            public void onDevicesChanged(List<DeviceRegistry.Entry> added, List<DeviceRegistry.Entry> updated,
+                                         List<DeviceRegistry.Entry> removed) {
+                diffs.add(Arrays.asList(added, updated, removed));
+            }
+        });
+    }
+
+    private static BluetoothDevice device(String address) {
+        BluetoothDevice device = mock(BluetoothDevice.class);
+        when(device.getAddress()).thenReturn(address);
+        return device;
+    }
+
+    // runs the publish the registry posted last, as the handler would PUBLISH_INTERVAL_MS later
+    private void publish(int times_posted) {
+        ArgumentCaptor<Runnable> publish = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler, times(times_posted)).postDelayed(publish.capture(), eq(DeviceRegistry.PUBLISH_INTERVAL_MS));
+        publish.getValue().run();
+    }
+
+    private static List<String> addresses(List<DeviceRegistry.Entry> entries) {
+        List<String> addresses = new ArrayList<>();
+        for (DeviceRegistry.Entry entry : entries) {
+            addresses.add(entry.address);
+        }
+        Collections.sort(addresses);
+        return addresses;
+    }
+
+    @Test
+    public void advertisementsArePublishedInOneBatch() {
+        BluetoothDevice a = device("A");
+        registry.record(a, -60, 0);
+        registry.record(device("B"), -70, 10);
+        registry.record(a, -80, 20);
+        // one publish for the whole burst
+        publish(1);
+
+        assertEquals(1, diffs.size());
+        assertEquals(Arrays.asList("A", "B"), addresses(diffs.get(0).get(0)));
+        assertTrue(diffs.get(0).get(1).isEmpty());
+        assertTrue(diffs.get(0).get(2).isEmpty());
+
+        DeviceRegistry.Entry entry = registry.get("A");
+        assertEquals(2, entry.advertisements());
+        assertEquals(20, entry.lastSeenMillis());
+        assertEquals(-60 + DeviceRegistry.RSSI_ALPHA * -20, entry.rssi(), 0.001f);
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void publishedDevicesAreReportedAsUpdatedOnce() {
+        BluetoothDevice a = device("A");
+        registry.record(a, -60, 0);
+        publish(1);
+        registry.record(a, -60, 100);
+        registry.record(a, -60, 200);
+        publish(2);
+
+        assertEquals(2, diffs.size());
+        assertTrue(diffs.get(1).get(0).isEmpty());
+        assertEquals(Arrays.asList("A"), addresses(diffs.get(1).get(1)));
+
+        // nothing new, nothing to tell
+        publish(2);
+        assertEquals(2, diffs.size());
+    }
+
+    @Test
+    public void staleDevicesAreRemoved() {
+        BluetoothDevice a = device("A");
+        registry.record(a, -60, 0);
+        registry.record(device("B"), -60, 0);
+        publish(1);
+        registry.record(a, -60, 5);
+        registry.record(device("C"), -60, 5);
+
+        registry.evictStale(STALE_MS + 1);
+        assertNull(registry.get("B"));
+        assertNotNull(registry.get("A"));
+        publish(2);
+        List<List<DeviceRegistry.Entry>> diff = diffs.get(1);
+        assertEquals(Arrays.asList("C"), addresses(diff.get(0)));
+        assertEquals(Arrays.asList("A"), addresses(diff.get(1)));
+        assertEquals(Arrays.asList("B"), addresses(diff.get(2)));
+
+        // updated but gone before the next publish, only reported as removed
+        registry.record(a, -60, 10);
+        registry.evictStale(STALE_MS + 10);
+        publish(3);
+        diff = diffs.get(2);
+        assertTrue(diff.get(1).isEmpty());
+        assertEquals(Arrays.asList("A", "C"), addresses(diff.get(2)));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void devicesGoneBeforeTheirFirstPublishAreNeverReported() {
+        registry.record(device("A"), -60, 0);
+        registry.evictStale(STALE_MS);
+        publish(1);
+        assertTrue(diffs.isEmpty());
+    }
+
+    @Test
+    public void clearForgetsEverythingSilently() {
+        registry.record(device("A"), -60, 0);
+        registry.clear();
+        verify(handler).removeCallbacks(any(Runnable.class));
+        assertEquals(0, registry.size());
+        registry.record(device("B"), -60, 0);
+        publish(2);
+        assertEquals(1, diffs.size());
+        assertEquals(Arrays.asList("B"), addresses(diffs.get(0).get(0)));
+    }
+
+    @Test
+    public void evictionRunsOnlyWhileStarted() {
+        registry.start();
+        registry.start();
+        verify(handler, times(1)).postDelayed(any(Runnable.class), eq(DeviceRegistry.EVICTION_INTERVAL_MS));
+        registry.stop();
+        verify(handler).removeCallbacks(any(Runnable.class));
+        verify(handler, never()).postDelayed(any(Runnable.class), eq(DeviceRegistry.PUBLISH_INTERVAL_MS));
+    }
+}
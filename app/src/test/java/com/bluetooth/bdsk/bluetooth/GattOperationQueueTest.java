@@ -0,0 +1,150 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.os.Handler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GattOperationQueueTest {
+    private Handler handler;
+    private BluetoothGatt gatt;
+    private GattOperationQueue.Listener listener;
+    private GattOperationQueue queue;
+
+    @Before
+    public void setUp() {
+        handler = mock(Handler.class);
+        gatt = mock(BluetoothGatt.class);
+        listener = mock(GattOperationQueue.Listener.class);
+        when(gatt.readCharacteristic(any(BluetoothGattCharacteristic.class))).thenReturn(true);
+        queue = new GattOperationQueue(handler, listener);
+        queue.setGatt(gatt);
+    }
+
+    private GattOperation read(BluetoothGattCharacteristic characteristic) {
+        GattOperation operation = GattOperation.readCharacteristic(characteristic);
+        operation.future = new GattFuture<byte[]>(handler);
+        queue.enqueue(operation);
+        return operation;
+    }
+
+    @Test
+    public void operationsRunOneAtATime() {
+        BluetoothGattCharacteristic a = mock(BluetoothGattCharacteristic.class);
+        BluetoothGattCharacteristic b = mock(BluetoothGattCharacteristic.class);
+        GattOperation first = read(a);
+        GattOperation second = read(b);
+
+        verify(gatt).readCharacteristic(a);
+        verify(gatt, times(0)).readCharacteristic(b);
+        assertEquals(2, queue.size());
+
+        assertSame(first, queue.complete(GattOperation.READ_CHARACTERISTIC, a));
+        verify(gatt).readCharacteristic(b);
+        assertSame(second, queue.complete(GattOperation.READ_CHARACTERISTIC, b));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void lateCallbackOfTimedOutReadDoesNotCompleteTheNextRead() throws Exception {
+        BluetoothGattCharacteristic a = mock(BluetoothGattCharacteristic.class);
+        BluetoothGattCharacteristic b = mock(BluetoothGattCharacteristic.class);
+        GattOperation first = read(a);
+        GattOperation second = read(b);
+
+        ArgumentCaptor<Runnable> timeout = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postDelayed(timeout.capture(), anyLong());
+        timeout.getValue().run();
+
+        assertTrue(first.future.isDone());
+        assertTrue(first.future.failure() instanceof GattException);
+        verify(listener).onOperationFailed(first, "timed out");
+        verify(gatt).readCharacteristic(b);
+
+        // the answer to the read of a turns up after all
+        assertNull(queue.complete(GattOperation.READ_CHARACTERISTIC, a));
+        assertFalse(second.future.isDone());
+        assertEquals(1, queue.size());
+
+        assertSame(second, queue.complete(GattOperation.READ_CHARACTERISTIC, b));
+    }
+
+    @Test
+    public void staleTimeoutDoesNotFailTheNextOperation() {
+        BluetoothGattCharacteristic a = mock(BluetoothGattCharacteristic.class);
+        BluetoothGattCharacteristic b = mock(BluetoothGattCharacteristic.class);
+        GattOperation first = read(a);
+        GattOperation second = read(b);
+
+        ArgumentCaptor<Runnable> first_timeout = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postDelayed(first_timeout.capture(), anyLong());
+        // the answer comes in just as the timeout of the first read was already due
+        assertSame(first, queue.complete(GattOperation.READ_CHARACTERISTIC, a));
+        first_timeout.getValue().run();
+
+        assertFalse(second.future.isDone());
+        verify(listener, never()).onOperationFailed(any(GattOperation.class), anyString());
+        assertEquals(1, queue.size());
+
+        // its own timeout still fails it
+        ArgumentCaptor<Runnable> timeouts = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler, times(2)).postDelayed(timeouts.capture(), anyLong());
+        timeouts.getAllValues().get(1).run();
+        assertTrue(second.future.failure() instanceof GattException);
+        verify(listener).onOperationFailed(second, "timed out");
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void callbackOfAnotherTypeIsIgnored() {
+        BluetoothGattCharacteristic a = mock(BluetoothGattCharacteristic.class);
+        read(a);
+        assertNull(queue.complete(GattOperation.WRITE_CHARACTERISTIC, a));
+        assertNull(queue.complete(GattOperation.READ_REMOTE_RSSI, null));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void refusedOperationFailsAndTheNextOneStarts() {
+        BluetoothGattCharacteristic refused = mock(BluetoothGattCharacteristic.class);
+        BluetoothGattCharacteristic b = mock(BluetoothGattCharacteristic.class);
+        when(gatt.readCharacteristic(refused)).thenReturn(false);
+        GattOperation first = read(refused);
+        GattOperation second = read(b);
+
+        assertTrue(first.future.failure() instanceof GattException);
+        verify(listener).onOperationFailed(first, "refused");
+        assertFalse(second.future.isDone());
+        verify(gatt).readCharacteristic(b);
+    }
+
+    @Test
+    public void clearFailsEverything() {
+        GattOperation first = read(mock(BluetoothGattCharacteristic.class));
+        GattOperation second = read(mock(BluetoothGattCharacteristic.class));
+        queue.clear();
+        assertEquals(0, queue.size());
+        try {
+            second.future.get();
+            fail("expected the future to fail");
+        } catch (InterruptedException | ExecutionException e) {
+            assertTrue(e.getCause() instanceof GattException);
+        }
+        assertTrue(first.future.isDone());
+    }
+}
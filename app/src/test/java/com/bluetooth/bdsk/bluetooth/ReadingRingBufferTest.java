@@ -0,0 +1,100 @@
+package com.bluetooth.bdsk.bluetooth;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReadingRingBufferTest {
+    // copies what it is handed, the events themselves are reused
+    private static final class Collector implements ReadingRingBuffer.Consumer {
+        final List<byte[]> values = new ArrayList<>();
+        final List<Long> timestamps = new ArrayList<>();
+
+        @Override
+        public void onReading(ReadingEvent event) {
+            values.add(Arrays.copyOf(event.value(), event.length()));
+            timestamps.add(event.timestampNanos());
+        }
+    }
+
+    @Test
+    public void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(2, new ReadingRingBuffer(1).capacity());
+        assertEquals(4, new ReadingRingBuffer(3).capacity());
+        assertEquals(4, new ReadingRingBuffer(4).capacity());
+        assertEquals(64, new ReadingRingBuffer(ReadingRingBuffer.DEFAULT_CAPACITY).capacity());
+    }
+
+    @Test
+    public void valuesAreCopiedWhenPublished() {
+        ReadingRingBuffer ring = new ReadingRingBuffer(4);
+        byte[] value = {1, 2};
+        ring.publish("AA", 3, value, 10);
+        value[0] = 9;
+        Collector collector = new Collector();
+        assertEquals(1, ring.drain(collector));
+        assertArrayEquals(new byte[]{1, 2}, collector.values.get(0));
+    }
+
+    @Test
+    public void wakesTheConsumerOncePerBatch() {
+        ReadingRingBuffer ring = new ReadingRingBuffer(4);
+        assertTrue(ring.publish("AA", 1, new byte[]{1}, 1));
+        assertFalse(ring.publish("AA", 1, new byte[]{2}, 2));
+        assertEquals(2, ring.drain(new Collector()));
+        assertTrue(ring.publish("AA", 1, new byte[]{3}, 3));
+    }
+
+    @Test
+    public void wrapsAroundInOrder() {
+        ReadingRingBuffer ring = new ReadingRingBuffer(4);
+        Collector collector = new Collector();
+        for (int i = 0; i < 25; i++) {
+            ring.publish("AA", 1, new byte[]{(byte) i}, i);
+            if (i % 3 == 2) {
+                ring.drain(collector);
+            }
+        }
+        ring.drain(collector);
+        assertEquals(25, collector.values.size());
+        for (int i = 0; i < 25; i++) {
+            assertEquals(i, collector.values.get(i)[0]);
+            assertEquals(i, (long) collector.timestamps.get(i));
+        }
+        assertEquals(0, ring.dropped());
+    }
+
+    @Test
+    public void fullRingDropsNewValuesAndCountsThem() {
+        ReadingRingBuffer ring = new ReadingRingBuffer(4);
+        for (int i = 0; i < 7; i++) {
+            ring.publish("AA", 1, new byte[]{(byte) i}, i);
+        }
+        assertEquals(3, ring.dropped());
+        Collector collector = new Collector();
+        assertEquals(4, ring.drain(collector));
+        // the oldest unread values are kept, not overwritten
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, collector.values.get(i)[0]);
+        }
+        assertTrue(ring.publish("AA", 1, new byte[]{7}, 7));
+        assertEquals(3, ring.dropped());
+    }
+
+    @Test
+    public void valuesLargerThanTheEventGrowIt() {
+        ReadingRingBuffer ring = new ReadingRingBuffer(2);
+        byte[] large = new byte[ReadingEvent.DEFAULT_VALUE_CAPACITY + 10];
+        large[large.length - 1] = 5;
+        ring.publish("AA", 1, large, 1);
+        ring.publish("AA", 1, null, 2);
+        Collector collector = new Collector();
+        ring.drain(collector);
+        assertArrayEquals(large, collector.values.get(0));
+        assertEquals(0, collector.values.get(1).length);
+    }
+}
@@ -0,0 +1,102 @@
+package com.bluetooth.bdsk.proximity;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ProximityEstimatorTest {
+    private final ProximityEstimator estimator = new ProximityEstimator();
+    private long now_ms = 0;
+
+    // a sample long after the previous one, which the filter then follows almost exactly
+    private boolean settle(int rssi) {
+        now_ms += 1000000000L;
+        return estimator.update(rssi, now_ms);
+    }
+
+    /*
+     * With the default measured power of -59dBm the band boundaries fall at
+     *   NEAR_M 0.5m: -51.5dBm, widened to 0.625m -53.9dBm in NEAR, narrowed to 0.375m -48.4dBm in MEDIUM
+     *   FAR_M 7m: -80.1dBm, widened to 8.75m -82.5dBm in MEDIUM, narrowed to 5.25m -77.0dBm in FAR
+     */
+
+    @Test
+    public void firstSampleUsesThePlainBoundaries() {
+        assertEquals(ProximityEstimator.UNKNOWN, estimator.band());
+        assertTrue(estimator.update(-51, 0));
+        assertEquals(ProximityEstimator.NEAR, estimator.band());
+
+        estimator.reset();
+        assertEquals(ProximityEstimator.UNKNOWN, estimator.band());
+        estimator.update(-52, 0);
+        assertEquals(ProximityEstimator.MEDIUM, estimator.band());
+
+        estimator.reset();
+        estimator.update(-81, 0);
+        assertEquals(ProximityEstimator.FAR, estimator.band());
+    }
+
+    @Test
+    public void nearIsLeftOnlyPastTheWidenedBoundary() {
+        settle(-45);
+        assertEquals(ProximityEstimator.NEAR, estimator.band());
+        assertFalse(settle(-53));
+        assertEquals(ProximityEstimator.NEAR, estimator.band());
+        assertTrue(settle(-55));
+        assertEquals(ProximityEstimator.MEDIUM, estimator.band());
+    }
+
+    @Test
+    public void mediumIsLeftOnlyPastTheNarrowedBoundaries() {
+        settle(-65);
+        assertEquals(ProximityEstimator.MEDIUM, estimator.band());
+        assertFalse(settle(-49));
+        assertFalse(settle(-82));
+        assertEquals(ProximityEstimator.MEDIUM, estimator.band());
+        assertTrue(settle(-48));
+        assertEquals(ProximityEstimator.NEAR, estimator.band());
+
+        settle(-65);
+        assertTrue(settle(-83));
+        assertEquals(ProximityEstimator.FAR, estimator.band());
+    }
+
+    @Test
+    public void farIsLeftOnlyPastTheWidenedBoundary() {
+        settle(-90);
+        assertEquals(ProximityEstimator.FAR, estimator.band());
+        assertFalse(settle(-78));
+        assertEquals(ProximityEstimator.FAR, estimator.band());
+        assertTrue(settle(-76));
+        assertEquals(ProximityEstimator.MEDIUM, estimator.band());
+    }
+
+    @Test
+    public void singleSpikeDoesNotChangeTheBand() {
+        for (int i = 0; i < 50; i++) {
+            now_ms += 100;
+            estimator.update(-65, now_ms);
+        }
+        assertEquals(ProximityEstimator.MEDIUM, estimator.band());
+        now_ms += 100;
+        assertFalse(estimator.update(-40, now_ms));
+        assertEquals(ProximityEstimator.MEDIUM, estimator.band());
+        assertTrue(estimator.rssi() < -60);
+    }
+
+    @Test
+    public void txPowerCalibratesTheDistance() {
+        assertEquals(1f, distanceAt(ProximityEstimator.DEFAULT_MEASURED_POWER_DBM), 0.001f);
+        // 0dBm transmitted is -41dBm at one metre
+        estimator.setTxPower(0);
+        estimator.reset();
+        assertEquals(1f, distanceAt(-41), 0.001f);
+        assertEquals(10f, distanceAt(-41 - 25), 0.01f);
+    }
+
+    private float distanceAt(int rssi) {
+        estimator.reset();
+        estimator.update(rssi, 0);
+        return estimator.distanceMeters();
+    }
+}
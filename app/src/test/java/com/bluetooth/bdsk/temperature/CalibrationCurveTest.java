@@ -0,0 +1,100 @@
+package com.bluetooth.bdsk.temperature;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CalibrationCurveTest {
+    // the shipped table lists every code of its range, so the gaps between points only
+    // occur with tables like this one
+    private static Map<String, String> gappedTable() {
+        Map<String, String> table = new HashMap<>();
+        table.put("10", "10");
+        table.put("14", "6,0");
+        table.put(" 20", "-6.0");
+        return table;
+    }
+
+    @Test
+    public void listedCodesDecodeToTheirPoints() {
+        CalibrationCurve curve = CalibrationCurve.fromTable(gappedTable());
+        assertEquals(0x10, curve.firstCode());
+        assertEquals(0x20, curve.lastCode());
+        assertEquals(100, curve.interpolate(0x10));
+        assertEquals(60, curve.interpolate(0x14));
+        assertEquals(-60, curve.interpolate(0x20));
+    }
+
+    @Test
+    public void interpolatesAcrossGaps() {
+        CalibrationCurve curve = CalibrationCurve.fromTable(gappedTable());
+        assertEquals(90, curve.interpolate(0x11));
+        assertEquals(80, curve.interpolate(0x12));
+        assertEquals(50, curve.interpolate(0x15));
+        assertEquals(0, curve.interpolate(0x1a));
+        assertEquals(-50, curve.interpolate(0x1f));
+    }
+
+    @Test
+    public void roundsHalfAwayFromZeroWhicheverTheSlope() {
+        CalibrationCurve rising = new CalibrationCurve(new int[]{0, 4}, new int[]{0, 10});
+        assertEquals(3, rising.interpolate(1));
+        assertEquals(8, rising.interpolate(3));
+        CalibrationCurve falling = new CalibrationCurve(new int[]{0, 4}, new int[]{0, -10});
+        assertEquals(-3, falling.interpolate(1));
+        assertEquals(-8, falling.interpolate(3));
+    }
+
+    @Test
+    public void doesNotExtrapolate() {
+        CalibrationCurve curve = CalibrationCurve.fromTable(gappedTable());
+        assertEquals(TemperatureDecoder.OVER_RANGE, curve.interpolate(0x0f));
+        assertEquals(TemperatureDecoder.UNDER_RANGE, curve.interpolate(0x21));
+    }
+
+    @Test
+    public void decoderMatchesTheCurveEverywhere() {
+        CalibrationCurve curve = CalibrationCurve.fromTable(gappedTable());
+        TemperatureDecoder decoder = curve.toDecoder();
+        assertEquals(curve.firstCode(), decoder.firstCode());
+        assertEquals(curve.lastCode(), decoder.lastCode());
+        for (int code = curve.firstCode() - 1; code <= curve.lastCode() + 1; code++) {
+            assertEquals(curve.interpolate(code), decoder.decodeRaw(code));
+        }
+    }
+
+    @Test
+    public void maxErrorAgainstAFullerTable() {
+        CalibrationCurve curve = CalibrationCurve.fromTable(gappedTable());
+        Map<String, String> reference = gappedTable();
+        reference.put("12", "8.3");
+        reference.put("18", "1.5");
+        assertEquals(0, curve.maxErrorTenths(gappedTable()));
+        // 0x12 decodes to 8.0 and 0x18 to 2.0
+        assertEquals(5, curve.maxErrorTenths(reference));
+        reference.put("21", "-7");
+        assertEquals(Integer.MAX_VALUE, curve.maxErrorTenths(reference));
+    }
+
+    @Test
+    public void parsesTheTableSpellings() {
+        assertEquals(-56, CalibrationCurve.parseTenths("-5.6"));
+        assertEquals(-56, CalibrationCurve.parseTenths(" -5,6 "));
+        assertEquals(1100, CalibrationCurve.parseTenths("110"));
+        assertEquals(50, CalibrationCurve.parseTenths("5."));
+        assertEquals(-5, CalibrationCurve.parseTenths("-0.5"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCodesOutOfOrder() {
+        new CalibrationCurve(new int[]{2, 1}, new int[]{0, 0});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMismatchedPoints() {
+        new CalibrationCurve(new int[]{1, 2}, new int[]{0});
+    }
+}
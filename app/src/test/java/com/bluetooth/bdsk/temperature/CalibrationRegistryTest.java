@@ -0,0 +1,113 @@
+package com.bluetooth.bdsk.temperature;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CalibrationRegistryTest {
+    private static final List<String> PROFILES = Arrays.asList("p1", "p2", "p3", "p4", "p5", "bt_05_v1_2");
+
+    // profiles whose curve was asked for, in order
+    private final List<String> curves_built = new ArrayList<>();
+    private CalibrationRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new CalibrationRegistry(new CalibrationRegistry.Source() {
+            @Override
+            public boolean hasProfile(String profile) {
+                return PROFILES.contains(profile);
+            }
+
+            @Override
+            public CalibrationCurve curve(String profile) {
+                if (!PROFILES.contains(profile)) {
+                    return null;
+                }
+                curves_built.add(profile);
+                return new CalibrationCurve(new int[]{1, 2}, new int[]{10, 0});
+            }
+        });
+    }
+
+    @Test
+    public void normalisesDeviceKeys() {
+        assertEquals("miji_bluetooth01", CalibrationRegistry.normalise("Miji_Bluetooth01"));
+        assertEquals("bt_05_v1_2", CalibrationRegistry.normalise(" BT-05 v1.2 "));
+    }
+
+    @Test
+    public void matchesProfileNamesDirectly() {
+        assertEquals("bt_05_v1_2", registry.profileFor(null, "BT-05", "v1.2"));
+        assertEquals("p3", registry.profileFor("P3", null, null));
+        assertEquals(Calibration.DEFAULT_PROFILE, registry.profileFor("unknown", "unknown", "1.0"));
+        assertEquals(Calibration.DEFAULT_PROFILE, registry.profileFor(null, null, null));
+    }
+
+    @Test
+    public void modelAndFirmwareBeatModelBeatDeviceName() {
+        registry.register("Probe", "p1");
+        registry.register("Probe 2.0", "p2");
+        registry.register("Sensor-A", "p3");
+        assertEquals("p2", registry.profileFor("Sensor-A", "probe", "2.0"));
+        assertEquals("p1", registry.profileFor("Sensor-A", "probe", "1.0"));
+        assertEquals("p1", registry.profileFor("Sensor-A", "probe", null));
+        assertEquals("p3", registry.profileFor("sensor a", "other", "1.0"));
+    }
+
+    @Test
+    public void aliasesWinOverProfileNames() {
+        registry.register("p1", "p4");
+        assertEquals("p4", registry.profileFor("P1", null, null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesAliasesOfUnknownProfiles() {
+        registry.register("Probe", "missing");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesDecodersOfUnknownProfiles() {
+        registry.decoder("missing");
+    }
+
+    @Test
+    public void buildsEachDecoderOnce() {
+        TemperatureDecoder decoder = registry.decoder("p1");
+        assertSame(decoder, registry.decoderFor("P1", null, null));
+        assertEquals(Arrays.asList("p1"), curves_built);
+    }
+
+    @Test
+    public void defaultProfileIsTheSharedTable() {
+        assertSame(Calibration.decoder(), registry.decoderFor(null, null, null));
+        assertFalse(registry.isLoaded(Calibration.DEFAULT_PROFILE));
+        assertTrue(curves_built.isEmpty());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsed() {
+        assertEquals(4, CalibrationRegistry.MAX_LOADED);
+        registry.decoder("p1");
+        registry.decoder("p2");
+        registry.decoder("p3");
+        registry.decoder("p4");
+        // p1 is used again, so p2 is now the one used longest ago
+        registry.decoder("p1");
+        registry.decoder("p5");
+        assertTrue(registry.isLoaded("p1"));
+        assertFalse(registry.isLoaded("p2"));
+        assertTrue(registry.isLoaded("p3"));
+        assertTrue(registry.isLoaded("p4"));
+        assertTrue(registry.isLoaded("p5"));
+
+        registry.decoder("p2");
+        assertEquals(Arrays.asList("p1", "p2", "p3", "p4", "p5", "p2"), curves_built);
+        assertFalse(registry.isLoaded("p3"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.bluetooth.bdsk.temperature;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TemperatureAlarmTest {
+    // 40.0C down to -40.0C, one tenth per code, so the code of t tenths is 400 - t
+    private static final TemperatureDecoder decoder = linearDecoder();
+
+    private static TemperatureDecoder linearDecoder() {
+        int[] tenths = new int[801];
+        for (int i = 0; i < tenths.length; i++) {
+            tenths[i] = 400 - i;
+        }
+        return new TemperatureDecoder(0, tenths);
+    }
+
+    private static int code(int tenths) {
+        return 400 - tenths;
+    }
+
+    @Test
+    public void celsiusLimitsAreInclusive() {
+        TemperatureAlarm alarm = new TemperatureAlarm(decoder, 300, -100);
+        assertEquals(TemperatureAlarm.TOO_HOT, alarm.check(code(301)));
+        assertEquals(TemperatureAlarm.TOO_HOT, alarm.check(code(300)));
+        assertEquals(TemperatureAlarm.OK, alarm.check(code(299)));
+        assertEquals(TemperatureAlarm.OK, alarm.check(code(-99)));
+        assertEquals(TemperatureAlarm.TOO_COLD, alarm.check(code(-100)));
+        assertEquals(TemperatureAlarm.TOO_COLD, alarm.check(code(-101)));
+        // no raw code in the payload
+        assertEquals(TemperatureAlarm.OK, alarm.check(-1));
+    }
+
+    @Test
+    public void missingLimitsAreNotChecked() {
+        TemperatureAlarm none = new TemperatureAlarm(decoder, TemperatureAlarm.NO_LIMIT, TemperatureAlarm.NO_LIMIT);
+        assertEquals(TemperatureAlarm.OK, none.check(code(400)));
+        assertEquals(TemperatureAlarm.OK, none.check(code(-400)));
+        TemperatureAlarm high_only = new TemperatureAlarm(decoder, 300, TemperatureAlarm.NO_LIMIT);
+        assertEquals(TemperatureAlarm.OK, high_only.check(code(-400)));
+        // hotter than the curve goes, so it never trips
+        TemperatureAlarm unreachable = new TemperatureAlarm(decoder, 500, TemperatureAlarm.NO_LIMIT);
+        assertEquals(TemperatureAlarm.OK, unreachable.check(code(400)));
+    }
+
+    @Test
+    public void fahrenheitLimitsOnWholeCelsiusTenths() {
+        // 86.0F is 30.0C and 14.0F is -10.0C exactly
+        TemperatureAlarm alarm = TemperatureAlarm.fahrenheit(decoder, 860, 140);
+        assertEquals(TemperatureAlarm.TOO_HOT, alarm.check(code(300)));
+        assertEquals(TemperatureAlarm.OK, alarm.check(code(299)));
+        assertEquals(TemperatureAlarm.TOO_COLD, alarm.check(code(-100)));
+        assertEquals(TemperatureAlarm.OK, alarm.check(code(-99)));
+    }
+
+    @Test
+    public void fahrenheitHighLimitRoundsUp() {
+        // 86.1F is 30.06C: 30.0C (86.0F) stays below it, 30.1C (86.18F) is above
+        TemperatureAlarm alarm = TemperatureAlarm.fahrenheit(decoder, 861, TemperatureAlarm.NO_LIMIT);
+        assertEquals(TemperatureAlarm.OK, alarm.check(code(300)));
+        assertEquals(TemperatureAlarm.TOO_HOT, alarm.check(code(301)));
+        // -4.1F is -20.06C: -20.0C (-4.0F) is above it, -20.1C (-4.18F) below
+        alarm = TemperatureAlarm.fahrenheit(decoder, -41, TemperatureAlarm.NO_LIMIT);
+        assertEquals(TemperatureAlarm.TOO_HOT, alarm.check(code(-200)));
+        assertEquals(TemperatureAlarm.OK, alarm.check(code(-201)));
+    }
+
+    @Test
+    public void fahrenheitLowLimitRoundsDown() {
+        // 13.9F is -10.06C: -10.0C (14.0F) stays above it, -10.1C (13.82F) is below
+        TemperatureAlarm alarm = TemperatureAlarm.fahrenheit(decoder, TemperatureAlarm.NO_LIMIT, 139);
+        assertEquals(TemperatureAlarm.OK, alarm.check(code(-100)));
+        assertEquals(TemperatureAlarm.TOO_COLD, alarm.check(code(-101)));
+        // 50.1F is 10.06C: 10.0C (50.0F) is below it, 10.1C (50.18F) above
+        alarm = TemperatureAlarm.fahrenheit(decoder, TemperatureAlarm.NO_LIMIT, 501);
+        assertEquals(TemperatureAlarm.TOO_COLD, alarm.check(code(100)));
+        assertEquals(TemperatureAlarm.OK, alarm.check(code(101)));
+    }
+}
@@ -0,0 +1,73 @@
+package com.bluetooth.bdsk.temperature;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TemperatureDecoderTest {
+    // codes 0x100..0x104, going down as it gets hotter like the real curve
+    private final TemperatureDecoder decoder =
+            new TemperatureDecoder(0x100, new int[]{500, 400, 300, 300, -56});
+
+    @Test
+    public void rawCodeIsBigEndian() {
+        assertEquals(0x0102, TemperatureDecoder.rawCode(new byte[]{0x01, 0x02}));
+        assertEquals(0xff80, TemperatureDecoder.rawCode(new byte[]{(byte) 0xff, (byte) 0x80, 0x7f}));
+        // only the first length bytes of a reused buffer count
+        assertEquals(-1, TemperatureDecoder.rawCode(new byte[]{0x01, 0x02}, 1));
+        assertEquals(-1, TemperatureDecoder.rawCode(new byte[]{0x01}));
+        assertEquals(-1, TemperatureDecoder.rawCode(null));
+    }
+
+    @Test
+    public void decodesCodesInRange() {
+        assertEquals(500, decoder.decode(new byte[]{0x01, 0x00}));
+        assertEquals(-56, decoder.decodeRaw(0x104));
+        assertEquals(0x100, decoder.firstCode());
+        assertEquals(0x104, decoder.lastCode());
+    }
+
+    @Test
+    public void flagsCodesOutOfRange() {
+        assertEquals(TemperatureDecoder.NO_READING, decoder.decode(new byte[]{0x01}));
+        assertEquals(TemperatureDecoder.OVER_RANGE, decoder.decodeRaw(0xff));
+        assertEquals(TemperatureDecoder.UNDER_RANGE, decoder.decodeRaw(0x105));
+        assertFalse(TemperatureDecoder.isTemperature(TemperatureDecoder.NO_READING));
+        assertFalse(TemperatureDecoder.isTemperature(TemperatureDecoder.OVER_RANGE));
+        assertFalse(TemperatureDecoder.isTemperature(TemperatureDecoder.UNDER_RANGE));
+        assertTrue(TemperatureDecoder.isTemperature(-56));
+    }
+
+    @Test
+    public void lastCodeAtOrAbove() {
+        assertEquals(0x100, decoder.lastCodeAtOrAbove(500));
+        assertEquals(0x100, decoder.lastCodeAtOrAbove(450));
+        // the last of two codes with the same temperature
+        assertEquals(0x103, decoder.lastCodeAtOrAbove(300));
+        assertEquals(0x104, decoder.lastCodeAtOrAbove(-1000));
+        // nothing that hot
+        assertEquals(0xff, decoder.lastCodeAtOrAbove(501));
+    }
+
+    @Test
+    public void firstCodeAtOrBelow() {
+        assertEquals(0x104, decoder.firstCodeAtOrBelow(-56));
+        // the first of two codes with the same temperature
+        assertEquals(0x102, decoder.firstCodeAtOrBelow(300));
+        assertEquals(0x101, decoder.firstCodeAtOrBelow(450));
+        assertEquals(0x100, decoder.firstCodeAtOrBelow(1000));
+        // nothing that cold
+        assertEquals(0x105, decoder.firstCodeAtOrBelow(-57));
+    }
+
+    @Test
+    public void formatsLikeTheTable() {
+        assertEquals("-5.6", TemperatureDecoder.format(-56));
+        assertEquals("110", TemperatureDecoder.format(1100));
+        assertEquals("0.5", TemperatureDecoder.format(5));
+        assertEquals("-0.5", TemperatureDecoder.format(-5));
+        assertEquals("over range", TemperatureDecoder.format(TemperatureDecoder.OVER_RANGE));
+        assertEquals("under range", TemperatureDecoder.format(TemperatureDecoder.UNDER_RANGE));
+        assertEquals("not available", TemperatureDecoder.format(TemperatureDecoder.NO_READING));
+    }
+}
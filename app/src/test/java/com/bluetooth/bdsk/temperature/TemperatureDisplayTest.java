@@ -0,0 +1,69 @@
+package com.bluetooth.bdsk.temperature;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TemperatureDisplayTest {
+    private static TemperatureDecoder decoder() {
+        return new TemperatureDecoder(0x100, new int[]{500, 370, 0, -56});
+    }
+
+    @Test
+    public void celsiusTexts() {
+        TemperatureDisplay display = new TemperatureDisplay(decoder(), TemperatureDisplay.CELSIUS);
+        assertEquals(TemperatureDisplay.CELSIUS, display.unit());
+        assertEquals("50C°", display.text(0x100));
+        assertEquals("37C°", display.text(0x101));
+        assertEquals("0C°", display.text(0x102));
+        assertEquals("-5.6C°", display.text(new byte[]{0x01, 0x03}));
+    }
+
+    @Test
+    public void fahrenheitTexts() {
+        TemperatureDisplay display = new TemperatureDisplay(decoder(), TemperatureDisplay.FAHRENHEIT);
+        assertEquals("122F°", display.text(0x100));
+        assertEquals("98.6F°", display.text(0x101));
+        assertEquals("32F°", display.text(0x102));
+        // -5.6C is 21.92F
+        assertEquals("21.9F°", display.text(0x103));
+    }
+
+    @Test
+    public void textsOutsideTheTable() {
+        TemperatureDisplay display = new TemperatureDisplay(decoder(), TemperatureDisplay.CELSIUS);
+        assertEquals("over range", display.text(0xff));
+        assertEquals("under range", display.text(0x104));
+        assertEquals("not available", display.text(-1));
+        assertEquals("not available", display.text(new byte[]{0x01}));
+    }
+
+    @Test
+    public void fahrenheitRoundsHalfAwayFromZero() {
+        assertEquals(320, TemperatureDisplay.toFahrenheit(0));
+        assertEquals(2120, TemperatureDisplay.toFahrenheit(1000));
+        assertEquals(-400, TemperatureDisplay.toFahrenheit(-400));
+        // 0.1C is 32.18F, -0.1C is 31.82F
+        assertEquals(322, TemperatureDisplay.toFahrenheit(1));
+        assertEquals(318, TemperatureDisplay.toFahrenheit(-1));
+        // -17.8C is -0.04F, -17.7C is 0.14F
+        assertEquals(0, TemperatureDisplay.toFahrenheit(-178));
+        assertEquals(1, TemperatureDisplay.toFahrenheit(-177));
+    }
+
+    @Test
+    public void tablesAreBuiltOncePerDecoderAndUnit() {
+        TemperatureDecoder decoder = decoder();
+        assertNull(TemperatureDisplay.cached(decoder, TemperatureDisplay.CELSIUS));
+        TemperatureDisplay celsius = TemperatureDisplay.get(decoder, TemperatureDisplay.CELSIUS);
+        assertSame(celsius, TemperatureDisplay.cached(decoder, TemperatureDisplay.CELSIUS));
+        assertSame(celsius, TemperatureDisplay.get(decoder, TemperatureDisplay.CELSIUS));
+        assertNull(TemperatureDisplay.cached(decoder, TemperatureDisplay.FAHRENHEIT));
+
+        TemperatureDisplay fahrenheit = TemperatureDisplay.get(decoder, TemperatureDisplay.FAHRENHEIT);
+        assertNotSame(celsius, fahrenheit);
+        assertSame(celsius, TemperatureDisplay.cached(decoder, TemperatureDisplay.CELSIUS));
+        // another decoder gets tables of its own, even for the same curve
+        assertNull(TemperatureDisplay.cached(decoder(), TemperatureDisplay.CELSIUS));
+    }
+}
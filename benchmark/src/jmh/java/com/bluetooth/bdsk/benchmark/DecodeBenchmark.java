@@ -0,0 +1,154 @@
+package com.bluetooth.bdsk.benchmark;
+
+import com.bluetooth.bdsk.HexCodec;
+import com.bluetooth.bdsk.temperature.Calibration;
+import com.bluetooth.bdsk.temperature.TemperatureAlarm;
+import com.bluetooth.bdsk.temperature.TemperatureDecoder;
+import com.bluetooth.bdsk.temperature.TemperatureDisplay;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each stage of turning a temperature notification into what the screen shows,
+ * legacy* being the way it was done before, on the original TemperatureMap, and the others
+ * what the app does now:
+ *
+ * payload -> hex String -> table lookup -> display String, then the whole path end to end
+ * and an alarm check. Every invocation takes the next of a fixed set of random payloads,
+ * drawn from the codes the original table has a parsable value for so that the legacy
+ * paths never miss or throw. Run with the gc profiler (the default in build.gradle) to see the bytes
+ * allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DecodeBenchmark {
+    private static final int SAMPLES = 1024;
+    private static final int ALARM_TENTHS = 300;
+
+    private byte[][] payloads;
+    private String[] keys;
+    private String[] values;
+    private Map<String, String> legacy_table;
+    private TemperatureDecoder decoder;
+    private TemperatureDisplay display;
+    private TemperatureAlarm alarm;
+    private final char[] hex_buffer = new char[4];
+    private int next;
+
+    @Setup
+    public void setup() {
+        decoder = Calibration.decoder();
+        display = TemperatureDisplay.get(decoder, TemperatureDisplay.CELSIUS);
+        alarm = new TemperatureAlarm(decoder, ALARM_TENTHS, TemperatureAlarm.NO_LIMIT);
+        legacy_table = new LegacyTemperatureMap().getValues();
+        List<Integer> codes = new ArrayList<>();
+        for (Map.Entry<String, String> entry : legacy_table.entrySet()) {
+            try {
+                Double.parseDouble(entry.getValue());
+            } catch (NumberFormatException e) {
+                // "-5,6"
+                continue;
+            }
+            codes.add(Integer.parseInt(entry.getKey(), 16));
+        }
+
+        Random random = new Random(42);
+        payloads = new byte[SAMPLES][];
+        keys = new String[SAMPLES];
+        values = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            int code = codes.get(random.nextInt(codes.size()));
+            payloads[i] = new byte[]{(byte) (code >> 8), (byte) code};
+            keys[i] = LegacyDecode.byteArrayAsHexString(payloads[i]);
+            values[i] = legacy_table.get(keys[i].toLowerCase());
+        }
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (SAMPLES - 1);
+        return next;
+    }
+
+    // payload -> hex
+
+    @Benchmark
+    public String legacyHexString() {
+        return LegacyDecode.byteArrayAsHexString(payloads[nextIndex()]);
+    }
+
+    @Benchmark
+    public void hexCodecEncode(Blackhole blackhole) {
+        byte[] payload = payloads[nextIndex()];
+        blackhole.consume(HexCodec.encode(payload, 0, payload.length, hex_buffer, 0));
+        blackhole.consume(hex_buffer);
+    }
+
+    @Benchmark
+    public String hexCodecString() {
+        return HexCodec.toHexString(payloads[nextIndex()]);
+    }
+
+    // hex -> temperature
+
+    @Benchmark
+    public String legacyLookup() {
+        return legacy_table.get(keys[nextIndex()].trim().toLowerCase());
+    }
+
+    @Benchmark
+    public int decoderLookup() {
+        return decoder.decode(payloads[nextIndex()]);
+    }
+
+    // temperature -> display String
+
+    @Benchmark
+    public String legacyDisplayString() {
+        return values[nextIndex()] + "C°";
+    }
+
+    @Benchmark
+    public String displayTable() {
+        return display.text(payloads[nextIndex()]);
+    }
+
+    // payload -> display String, end to end
+
+    @Benchmark
+    public String legacyPath() {
+        String key = LegacyDecode.byteArrayAsHexString(payloads[nextIndex()]).trim().toLowerCase();
+        return legacy_table.get(key) + "C°";
+    }
+
+    @Benchmark
+    public String tablePath() {
+        return display.text(TemperatureDecoder.rawCode(payloads[nextIndex()]));
+    }
+
+    // payload -> is it at or above the alarm limit
+
+    @Benchmark
+    public boolean legacyAlarm() {
+        String key = LegacyDecode.byteArrayAsHexString(payloads[nextIndex()]).trim().toLowerCase();
+        return Double.parseDouble(legacy_table.get(key)) * 10 >= ALARM_TENTHS;
+    }
+
+    @Benchmark
+    public boolean rawCodeAlarm() {
+        return alarm.check(TemperatureDecoder.rawCode(payloads[nextIndex()])) == TemperatureAlarm.TOO_HOT;
+    }
+}
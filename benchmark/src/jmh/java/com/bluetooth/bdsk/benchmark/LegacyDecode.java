@@ -0,0 +1,25 @@
+package com.bluetooth.bdsk.benchmark;
+
+/**
+ * The notification decode path as PeripheralControlActivity did it before TemperatureDecoder,
+ * HexCodec and TemperatureDisplay, kept here as the baseline the benchmarks compare against.
+ */
+final class LegacyDecode {
+    private LegacyDecode() {
+    }
+
+    // PeripheralControlActivity.byteArrayAsHexString
+    static String byteArrayAsHexString(byte[] bytes) {
+        if (bytes == null) {
+            return "[null]";
+        }
+        int l = bytes.length;
+        StringBuffer hex = new StringBuffer();
+        for (int i = 0; i < l; i++) {
+            if ((bytes[i] >= 0) & (bytes[i] < 16))
+                hex.append("0");
+            hex.append(Integer.toString(bytes[i] & 0xff, 16).toUpperCase());
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package com.bluetooth.bdsk.temperature;
+
+import com.bluetooth.bdsk.benchmark.LegacyTemperatureMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of getting a calibration table ready at startup, and of decoding with the curve
+ * directly instead of through the dense table. Lives in the temperature package to reach
+ * the generated CalibrationData.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CalibrationBuildBenchmark {
+    private Map<String, String> legacy_table;
+    private CalibrationCurve curve;
+    private TemperatureDecoder decoder;
+    private int next;
+
+    @Setup
+    public void setup() {
+        legacy_table = new LegacyTemperatureMap().getValues();
+        curve = CalibrationData.curve(Calibration.DEFAULT_PROFILE);
+        decoder = curve.toDecoder();
+    }
+
+    // parsing a hex -> degrees String table, what building from the original TemperatureMap cost
+    @Benchmark
+    public TemperatureDecoder decoderFromStringTable() {
+        return TemperatureDecoder.fromTable(legacy_table);
+    }
+
+    // what Calibration does now, from the generated primitive arrays
+    @Benchmark
+    public TemperatureDecoder decoderFromGeneratedArrays() {
+        return CalibrationData.curve(Calibration.DEFAULT_PROFILE).toDecoder();
+    }
+
+    @Benchmark
+    public TemperatureDisplay displayTable() {
+        return new TemperatureDisplay(decoder, TemperatureDisplay.CELSIUS);
+    }
+
+    // one sample through the curve's binary search compared to the dense table
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int curveInterpolate() {
+        next = next < decoder.lastCode() ? next + 1 : decoder.firstCode();
+        return curve.interpolate(next);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int denseDecode() {
+        next = next < decoder.lastCode() ? next + 1 : decoder.firstCode();
+        return decoder.decodeRaw(next);
+    }
+}